@@ -0,0 +1,999 @@
+/************************************************************************************************
+
+Asteroids.java
+
+  Usage:
+
+  <applet code="asteroids.Asteroids.class" width=w height=h>
+    <param name="shots" value="6">       (optional) Number of photons, asteroids and explosion
+    <param name="rocks" value="8">       (optional) fragments that can be in play at once. Each
+    <param name="scrap" value="20">      (optional) wave of asteroids fills the asteroid pool.
+    <param name="tickrate" value="20">   (optional) Game ticks per second.
+    <param name="framerate" value="60">  (optional) Frames drawn per second.
+    <param name="render" value="active"> (optional) "active" to draw frames from the game loop,
+                                                    "passive" to draw them through repaint().
+    <param name="redraw" value="full">   (optional) "dirty" to draw and copy to the screen
+                                                    only the parts of each frame that change.
+    <param name="raster" value="0">      (optional) Draw the stars and sprites in software on
+                                                    this many threads (0 for one per processor).
+    <param name="seed" value="1">        (optional) Seed for the game's random choices.
+    <param name="record" value="file">   (optional) Record the game to a file for replay.
+    <param name="pack" value="file">     (optional) Asset pack to load the sounds from.
+    <param name="profile" value="file">  (optional) Profile the game from the start, and write
+                                                    the profile to this file.
+  </applet>
+
+  Keyboard Controls:
+
+  S            - Start Game    P           - Pause Game
+  Cursor Left  - Rotate Left   Cursor Up   - Fire Thrusters
+  Cursor Right - Rotate Right  Cursor Down - Fire Retro Thrusters
+  Spacebar     - Fire Cannon   H           - Hyperspace
+  M            - Toggle Sound  D           - Toggle Graphics Detail
+  R            - Rewind 5 Seconds (not while recording)
+  O            - Profiler      W           - Write Profile
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.*;
+import java.io.*;
+import java.net.*;
+import java.util.*;
+import java.awt.event.KeyEvent;
+import java.awt.event.KeyListener;
+import java.awt.image.VolatileImage;
+import java.applet.Applet;
+
+/************************************************************************************************
+  The AsteroidsSprite class defines a game object, including it's shape, position, movement and
+  rotation. It also can detemine if two objects collide. The shape and motion are kept in one slot
+  of an AsteroidsBodies store, shared by every sprite in the same pool.
+************************************************************************************************/
+
+class AsteroidsSprite {
+
+  // Fields:
+
+  AsteroidsBodies bodies;        // Store holding the sprite's shape, position and movement,
+  int     slot;                  // and the sprite's slot in it.
+  Polygon sprite;                // Final location and shape of sprite after applying rotation and
+                                 // moving to screen position. Used for drawing on the screen and
+                                 // in detecting collisions.
+
+  int     minX, minY;            // Bounding box and bounding circle of the rendered sprite,
+  int     maxX, maxY;            // saved by render() so far apart sprites can be rejected
+  int     centerX, centerY;      // without looking at their vertices.
+  double  radius;
+
+  boolean swept;                 // Fast moving sprites (photons) also collide with anything
+  int     lastX, lastY;          // their center passed through since the last render.
+
+  AsteroidsRotation turns;       // Shape at each heading, for a sprite that turns in steps.
+
+  // Constructors:
+
+  public AsteroidsSprite(int width, int height) {
+
+    this(new AsteroidsBodies(1, 4, width, height), 0);
+  }
+
+  public AsteroidsSprite(AsteroidsBodies bodies, int slot) {
+
+    this.bodies = bodies;
+    this.slot = slot;
+    this.sprite = new Polygon();
+    this.swept = false;
+  }
+
+  // Methods:
+
+  public boolean isActive()         { return bodies.active[slot]; }
+  public double  getAngle()         { return bodies.angle[slot]; }
+  public double  getDeltaAngle()    { return bodies.deltaAngle[slot]; }
+  public double  getX()             { return bodies.x[slot]; }
+  public double  getY()             { return bodies.y[slot]; }
+  public double  getDeltaX()        { return bodies.deltaX[slot]; }
+  public double  getDeltaY()        { return bodies.deltaY[slot]; }
+
+  public void setActive(boolean b)     { bodies.active[slot] = b; }
+  public void setAngle(double a)       { bodies.angle[slot] = a; }
+  public void setDeltaAngle(double a)  { bodies.deltaAngle[slot] = a; }
+  public void setX(double x)           { bodies.x[slot] = bodies.prevX[slot] = x; }
+  public void setY(double y)           { bodies.y[slot] = bodies.prevY[slot] = y; }
+  public void setDeltaX(double x)      { bodies.deltaX[slot] = x; }
+  public void setDeltaY(double y)      { bodies.deltaY[slot] = y; }
+
+  public int  getPoints()              { return bodies.points[slot]; }
+  public int  getShapeX(int i)         { return bodies.shapeX[slot * bodies.stride + i]; }
+  public int  getShapeY(int i)         { return bodies.shapeY[slot * bodies.stride + i]; }
+  public void resetShape()             { bodies.resetShape(slot); turns = null; }
+  public void addPoint(int x, int y)   { bodies.addPoint(slot, x, y); turns = null; }
+
+  public void advance() {
+
+    // Update the rotation and position of the sprite based on the delta values. If the sprite
+    // moves off the edge of the screen, it is wrapped around to the other side.
+
+    bodies.advance(slot);
+  }
+
+  public void render() {
+
+    int i, k, n, x, y, px, py, sx, sy, base;
+    long r, d;
+    double cos, sin;
+    AsteroidsBodies b = this.bodies;
+
+    // Render the sprite's shape and location by rotating it's base shape and moving it to
+    // it's proper screen position. The sprite polygon's arrays are reused, so nothing is
+    // allocated once they have grown to fit the shape. A sprite on one of its headings takes
+    // its rotated shape ready made, any other finds its sine and cosine in a table (or works
+    // them out, for an old recording).
+
+    n = b.points[slot];
+    base = slot * b.stride;
+    if (this.sprite.xpoints.length < n) {
+      this.sprite.xpoints = new int[n];
+      this.sprite.ypoints = new int[n];
+    }
+    k = this.turns != null ? this.turns.heading(b.angle[slot]) : -1;
+    cos = sin = 0;
+    if (k < 0 && b.exact) {
+      cos = Math.cos(b.angle[slot]);
+      sin = Math.sin(b.angle[slot]);
+    }
+    else if (k < 0) {
+      cos = AsteroidsRotation.cos(b.angle[slot]);
+      sin = AsteroidsRotation.sin(b.angle[slot]);
+    }
+    x = (int) Math.round(b.x[slot]) + b.width / 2;
+    y = (int) Math.round(b.y[slot]) + b.height / 2;
+
+    // Remember where a swept sprite was, unless it has jumped further than one move would take
+    // it (wrapped around the screen or been reused for a new sprite). Any other sprite just
+    // notes where it is, so nothing is carried over from whatever last had its slot.
+
+    if (this.swept && Math.abs(x - this.centerX) + Math.abs(y - this.centerY) <= Math.abs(b.deltaX[slot]) + Math.abs(b.deltaY[slot]) + 2) {
+      this.lastX = this.centerX;
+      this.lastY = this.centerY;
+    }
+    else {
+      this.lastX = x;
+      this.lastY = y;
+    }
+    this.centerX = x;
+    this.centerY = y;
+
+    // Transform the vertices and collect the bounds as we go.
+
+    this.minX = this.maxX = x;
+    this.minY = this.maxY = y;
+    r = 0;
+    for (i = 0; i < n; i++) {
+      if (k >= 0) {
+        px = this.turns.x[k][i] + x;
+        py = this.turns.y[k][i] + y;
+      }
+      else {
+        sx = b.shapeX[base + i];
+        sy = b.shapeY[base + i];
+        px = (int) Math.round(sx * cos + sy * sin) + x;
+        py = (int) Math.round(sy * cos - sx * sin) + y;
+      }
+      this.sprite.xpoints[i] = px;
+      this.sprite.ypoints[i] = py;
+      if (px < this.minX) this.minX = px;
+      if (px > this.maxX) this.maxX = px;
+      if (py < this.minY) this.minY = py;
+      if (py > this.maxY) this.maxY = py;
+      d = (long) (px - x) * (px - x) + (long) (py - y) * (py - y);
+      if (d > r)
+        r = d;
+    }
+    this.sprite.npoints = n;
+    this.sprite.invalidate();
+    this.radius = Math.sqrt(r);
+    if (this.swept) {
+      this.minX = Math.min(this.minX, this.lastX);
+      this.maxX = Math.max(this.maxX, this.lastX);
+      this.minY = Math.min(this.minY, this.lastY);
+      this.maxY = Math.max(this.maxY, this.lastY);
+    }
+  }
+
+  public void startSweep() {
+
+    // Start a swept sprite's path over from where it is now, as when a photon is first fired.
+
+    this.lastX = this.centerX;
+    this.lastY = this.centerY;
+  }
+
+  public boolean boundsOverlap(AsteroidsSprite s) {
+
+    // Check whether the bounding boxes of two sprites overlap or touch.
+
+    return this.minX <= s.maxX && s.minX <= this.maxX && this.minY <= s.maxY && s.minY <= this.maxY;
+  }
+
+  public boolean isColliding(AsteroidsSprite s) {
+
+    int i, j, n, m;
+    double dx, dy, r;
+
+    // Throw out sprites whose bounding boxes don't touch, then those whose bounding circles
+    // don't. (Swept sprites are only checked by box, since their path is not in the circle.)
+
+    if (!boundsOverlap(s))
+      return false;
+    if (!this.swept && !s.swept) {
+      dx = this.centerX - s.centerX;
+      dy = this.centerY - s.centerY;
+      r = this.radius + s.radius;
+      if (dx * dx + dy * dy > r * r)
+        return false;
+    }
+
+    // Determine if one sprite overlaps with another, i.e., if any vertice
+    // of one sprite lands inside the other.
+
+    n = this.sprite.npoints;
+    m = s.sprite.npoints;
+    for (i = 0; i < m; i++)
+      if (this.contains(s.sprite.xpoints[i], s.sprite.ypoints[i]))
+        return true;
+    for (i = 0; i < n; i++)
+      if (s.contains(this.sprite.xpoints[i], this.sprite.ypoints[i]))
+        return true;
+
+    // Two outlines can also cross without either having a vertex inside the other.
+
+    for (i = 0; i < n; i++)
+      for (j = 0; j < m; j++)
+        if (segmentsCross(this.sprite.xpoints[i], this.sprite.ypoints[i],
+                          this.sprite.xpoints[(i + 1) % n], this.sprite.ypoints[(i + 1) % n],
+                          s.sprite.xpoints[j], s.sprite.ypoints[j],
+                          s.sprite.xpoints[(j + 1) % m], s.sprite.ypoints[(j + 1) % m]))
+          return true;
+
+    // A swept sprite also hits anything its center passed through since the last tick.
+
+    if (this.swept && s.crosses(this.lastX, this.lastY, this.centerX, this.centerY))
+      return true;
+    if (s.swept && this.crosses(s.lastX, s.lastY, s.centerX, s.centerY))
+      return true;
+    return false;
+  }
+
+  public boolean contains(int x, int y) {
+
+    int i, j, n;
+    boolean inside;
+
+    // Even-odd test of whether a point is inside the rendered sprite.
+
+    if (x < this.minX || x > this.maxX || y < this.minY || y > this.maxY)
+      return false;
+    n = this.sprite.npoints;
+    inside = false;
+    for (i = 0, j = n - 1; i < n; j = i++)
+      if ((this.sprite.ypoints[i] > y) != (this.sprite.ypoints[j] > y) &&
+          x < (double) (this.sprite.xpoints[j] - this.sprite.xpoints[i]) * (y - this.sprite.ypoints[i]) /
+              (this.sprite.ypoints[j] - this.sprite.ypoints[i]) + this.sprite.xpoints[i])
+        inside = !inside;
+    return inside;
+  }
+
+  public boolean crosses(int x0, int y0, int x1, int y1) {
+
+    int i, n;
+
+    // Check whether a line segment enters the rendered sprite.
+
+    if (x0 == x1 && y0 == y1)
+      return false;
+    if (contains(x0, y0) || contains(x1, y1))
+      return true;
+    n = this.sprite.npoints;
+    for (i = 0; i < n; i++)
+      if (segmentsCross(x0, y0, x1, y1,
+                        this.sprite.xpoints[i], this.sprite.ypoints[i],
+                        this.sprite.xpoints[(i + 1) % n], this.sprite.ypoints[(i + 1) % n]))
+        return true;
+    return false;
+  }
+
+  static boolean segmentsCross(int ax, int ay, int bx, int by, int cx, int cy, int dx, int dy) {
+
+    long d1, d2, d3, d4;
+
+    // Check whether segments AB and CD intersect, counting segments that only touch.
+
+    d1 = turn(cx, cy, dx, dy, ax, ay);
+    d2 = turn(cx, cy, dx, dy, bx, by);
+    d3 = turn(ax, ay, bx, by, cx, cy);
+    d4 = turn(ax, ay, bx, by, dx, dy);
+    if (((d1 > 0 && d2 < 0) || (d1 < 0 && d2 > 0)) && ((d3 > 0 && d4 < 0) || (d3 < 0 && d4 > 0)))
+      return true;
+    return (d1 == 0 && between(cx, cy, dx, dy, ax, ay)) ||
+           (d2 == 0 && between(cx, cy, dx, dy, bx, by)) ||
+           (d3 == 0 && between(ax, ay, bx, by, cx, cy)) ||
+           (d4 == 0 && between(ax, ay, bx, by, dx, dy));
+  }
+
+  static long turn(int ax, int ay, int bx, int by, int cx, int cy) {
+
+    // Cross product of AB and AC: positive for a left turn, negative for right, zero if in line.
+
+    return (long) (bx - ax) * (cy - ay) - (long) (by - ay) * (cx - ax);
+  }
+
+  static boolean between(int ax, int ay, int bx, int by, int cx, int cy) {
+
+    // For a point C in line with AB, check that it lies within the segment.
+
+    return Math.min(ax, bx) <= cx && cx <= Math.max(ax, bx) && Math.min(ay, by) <= cy && cy <= Math.max(ay, by);
+  }
+}
+
+/************************************************************************************************
+  Main applet code. The game itself is run by an AsteroidsWorld, the applet only feeds it the
+  keyboard, draws it and plays its sounds.
+************************************************************************************************/
+
+public class Asteroids extends Applet implements Runnable, KeyListener {
+
+  // static final long serialVersionUID = 1L;
+
+  // Thread control variables.
+
+  Thread loopThread;
+
+  // The game, the renderer that draws it and the clock that paces both.
+
+  AsteroidsWorld    world;
+  AsteroidsRenderer renderer;
+  AsteroidsClock    clock;
+
+  // Keyframes of the last few minutes of play, to rewind through, and the recording of the
+  // game, if one was asked for.
+
+  static final int REWIND_TICKS = 100;
+
+  AsteroidsTimeline timeline;
+  AsteroidsRecorder recorder;
+
+  // Profiler, attached to the world while profiling is on, and the file it is written to.
+
+  AsteroidsProfiler profiler;
+  File              profileFile;
+  boolean           profiling;
+  boolean           writeProfile;    // Set when the profile should be written on the next frame.
+
+  boolean paused;
+  boolean sound;
+
+  // Key flags. Held keys are sent to the world on every tick, fire and hyperspace are sent
+  // once for each key press.
+
+  boolean left  = false;
+  boolean right = false;
+  boolean up    = false;
+  boolean down  = false;
+  int     pulses;
+  int     rewinds;    // Number of times rewind was pressed since the last tick.
+
+  // Sound clips, played through a mixer on a thread of its own, and their files.
+
+  static final int CRASH     = 0;
+  static final int EXPLOSION = 1;
+  static final int FIRE      = 2;
+  static final int MISSLE    = 3;
+  static final int SAUCER    = 4;
+  static final int THRUSTERS = 5;
+  static final int WARP      = 6;
+
+  static final String[] SOUNDS = {
+    "crash.au", "explosion.au", "fire.au", "missle.au", "saucer.au", "thrusters.au", "warp.au"
+  };
+
+  AsteroidsMixer  mixer;
+  AsteroidsAssets assets;
+
+  // When init() was called, when the first frame was drawn and whether the sounds being ready
+  // has been reported, for timing the start of the game.
+
+  long          initTime;
+  volatile long firstFrameTime;
+  boolean loadReported;
+
+  // Flags for looping sound clips that are currently playing, and whether sound was on when
+  // the mixer was last told.
+
+  boolean thrustersPlaying;
+  boolean saucerPlaying;
+  boolean misslePlaying;
+  boolean soundPlaying;
+
+  // Canvas for active rendering, or null if frames are drawn through repaint() into the
+  // offscreen image instead.
+
+  AsteroidsCanvas canvas;
+
+  // Values for the offscreen image.
+
+  Dimension     offDimension;
+  VolatileImage offImage;
+
+  // Applet information.
+
+  public String getAppletInfo() {
+
+    return("Asteroids, Copyright 1998 by Mike Hall.");
+  }
+
+  public void init() {
+
+    Dimension d;
+
+    initTime = System.nanoTime();
+
+    // Take credit.
+
+    System.out.println("Asteroids, Copyright 1998 by Mike Hall.");
+
+    // Find the size of the screen and create the game world to fit it, along with the renderer
+    // that draws it.
+
+    d = getSize();
+    world = new AsteroidsWorld(d.width, d.height,
+                               getIntParameter("shots", AsteroidsWorld.MAX_SHOTS),
+                               getIntParameter("rocks", AsteroidsWorld.MAX_ROCKS),
+                               getIntParameter("scrap", AsteroidsWorld.MAX_SCRAP),
+                               getLongParameter("seed", AsteroidsRandom.newSeed()));
+    renderer = new AsteroidsRenderer(world);
+    if ("dirty".equals(getParameter("redraw")))
+      renderer.dirty = new AsteroidsDirty();
+    if (getParameter("raster") != null)
+      renderer.raster = new AsteroidsRaster(getIntParameter("raster", 0));
+    clock = new AsteroidsClock(getIntParameter("tickrate", AsteroidsClock.TICK_RATE),
+                               getIntParameter("framerate", AsteroidsClock.FRAME_RATE));
+
+    timeline = new AsteroidsTimeline(world);
+
+    profiler = new AsteroidsProfiler(clock.tickNanos, clock.frameNanos);
+    profiling = getParameter("profile") != null;
+    profileFile = new File(profiling ? getParameter("profile") : "asteroids-profile.txt");
+
+    // Start recording the game, if asked to. Nothing has happened in it yet.
+
+    if (getParameter("record") != null)
+      try {
+        recorder = new AsteroidsRecorder(new File(getParameter("record")), world);
+      }
+      catch (IOException e) {
+        System.out.println("Can't record to " + getParameter("record") + ": " + e.getMessage());
+      }
+      catch (SecurityException e) {
+        System.out.println("Can't record to " + getParameter("record") + ": " + e.getMessage());
+      }
+
+    // Unless asked not to, draw the game on a canvas filling the applet, from the game loop.
+
+    if (!"passive".equals(getParameter("render"))) {
+      canvas = new AsteroidsCanvas();
+      setLayout(new BorderLayout());
+      add(canvas, BorderLayout.CENTER);
+    }
+
+    // Take keys from whichever of the two has the focus.
+
+    addKeyListener(this);
+    if (canvas != null)
+      canvas.addKeyListener(this);
+
+    // Get ready to load the sounds, from the asset pack if there is one.
+
+    mixer = new AsteroidsMixer(SOUNDS.length);
+    assets = new AsteroidsAssets(mixer, SOUNDS);
+    assets.setBase(getDocumentBase());
+    if (getParameter("pack") != null)
+      try {
+        assets.openPack(new File(getParameter("pack")));
+      }
+      catch (IOException e) {
+        System.out.println("Can't open " + getParameter("pack") + ": " + e.getMessage());
+      }
+      catch (SecurityException e) {
+        System.out.println("Can't open " + getParameter("pack") + ": " + e.getMessage());
+      }
+
+    sound = true;
+    soundPlaying = true;
+    paused = false;
+  }
+
+
+  public int getIntParameter(String name, int value) {
+
+    String s;
+
+    // Read a numeric applet parameter, falling back to the default if it is missing or bad.
+
+    s = getParameter(name);
+    if (s != null)
+      try {
+        value = Integer.parseInt(s.trim());
+      }
+      catch (NumberFormatException e) {}
+    return value;
+  }
+
+  public long getLongParameter(String name, long value) {
+
+    String s;
+
+    s = getParameter(name);
+    if (s != null)
+      try {
+        value = Long.parseLong(s.trim());
+      }
+      catch (NumberFormatException e) {}
+    return value;
+  }
+
+  public void start() {
+
+    // Start loading the sounds in the background and start the game without waiting for them.
+
+    mixer.start();
+    assets.start();
+    if (loopThread == null) {
+      loopThread = new Thread(this);
+      loopThread.start();
+    }
+  }
+
+  public void stop() {
+
+    if (loopThread != null) {
+      loopThread.interrupt();
+      loopThread = null;
+    }
+    mixer.stop();
+  }
+
+  public void run() {
+
+    int n, input;
+    long start;
+
+    // Lower this thread's priority.
+
+    Thread.currentThread().setPriority(Thread.MIN_PRIORITY);
+
+    // This is the main loop. The game moves in fixed ticks, as many as the time since the last
+    // frame calls for, and a frame is drawn in between at the frame rate.
+
+    clock.start(System.nanoTime());
+    while (Thread.currentThread() == loopThread) {
+
+      // Advance the game and play whatever sounds it asks for.
+
+      synchronized (world) {
+        start = System.nanoTime();
+        updateProfiler();
+        n = clock.frame(start, !paused);
+        while (n-- > 0) {
+          input = getInput();
+          if (input < 0)
+            continue;
+          record(input);
+          timeline.step(input);
+          playSounds();
+        }
+        updateSounds();
+        renderer.alpha = clock.alpha();
+      }
+
+      // Update the screen and wait for the next frame.
+
+      display();
+      if (world.profiler != null)
+        world.profiler.frame(System.nanoTime() - start);
+      reportStartup();
+      try {
+        AsteroidsClock.sleep(clock.sleepTime(System.nanoTime()));
+      }
+      catch (InterruptedException e) {
+        break;
+      }
+    }
+    System.out.println(clock.report());
+    System.out.println(mixer.report());
+    synchronized (world) {
+      flushRecording();
+      if (world.profiler != null)
+        writeProfile();
+    }
+  }
+
+  public void reportStartup() {
+
+    // Say how long after init() the first frame was drawn, then the sounds once they are all
+    // loaded.
+
+    if (firstFrameTime == 0) {
+      firstFrameTime = System.nanoTime();
+      System.out.println("First frame: " + (firstFrameTime - initTime) / 1000000 + " ms after init");
+    }
+    if (!loadReported && assets.isDone()) {
+      System.out.println(assets.report());
+      loadReported = true;
+    }
+  }
+
+  public synchronized void updateProfiler() {
+
+    // Attach or detach the profiler as the 'O' key asks, starting it afresh each time it is
+    // turned on, and write it out if the 'W' key was pressed.
+
+    if (profiling && world.profiler == null) {
+      profiler.reset();
+      world.profiler = profiler;
+    }
+    if (!profiling)
+      world.profiler = null;
+    if (writeProfile) {
+      writeProfile();
+      writeProfile = false;
+    }
+  }
+
+  public void writeProfile() {
+
+    try {
+      profiler.dump(profileFile);
+      System.out.println("Profile written to " + profileFile);
+    }
+    catch (IOException e) {
+      System.out.println("Can't write profile to " + profileFile + ": " + e.getMessage());
+    }
+    catch (SecurityException e) {
+      System.out.println("Can't write profile to " + profileFile + ": " + e.getMessage());
+    }
+  }
+
+  public synchronized boolean rewind() {
+
+    boolean rewound;
+
+    // Go back a few seconds for each press of the rewind key, returning whether the game was
+    // sent back. A recording can only go forward, so there is no rewinding while one is being
+    // made.
+
+    rewound = rewinds > 0 && recorder == null && world.playing;
+    if (rewound)
+      timeline.rewind((long) rewinds * REWIND_TICKS);
+    rewinds = 0;
+    return rewound;
+  }
+
+  public void destroy() {
+
+    // Finish the recording, if there is one.
+
+    synchronized (world) {
+      if (recorder != null) {
+        try {
+          recorder.close();
+        }
+        catch (IOException e) {}
+        recorder = null;
+      }
+    }
+  }
+
+  public void record(int input) {
+
+    if (recorder != null)
+      try {
+        recorder.record(input);
+      }
+      catch (IOException e) {
+        System.out.println("Recording stopped: " + e.getMessage());
+        recorder = null;
+      }
+  }
+
+  public void flushRecording() {
+
+    if (recorder != null)
+      try {
+        recorder.flush();
+      }
+      catch (IOException e) {
+        System.out.println("Recording stopped: " + e.getMessage());
+        recorder = null;
+      }
+  }
+
+  public void display() {
+
+    // Draw the frame on the canvas, or have the AWT event thread draw it through update().
+
+    if (canvas != null) {
+      synchronized (world) {
+        updateRenderer();
+        canvas.showFrame(renderer);
+      }
+    }
+    else
+      repaint();
+  }
+
+  public void updateRenderer() {
+
+    renderer.loaded = assets.isDone();
+    renderer.soundsReady = assets.ready();
+    renderer.soundsTotal = SOUNDS.length;
+    renderer.paused = paused;
+    renderer.sound = sound;
+  }
+
+  public synchronized int getInput() {
+
+    int input;
+
+    // Collect the held keys and any key presses since the last tick. If rewind was pressed
+    // and the game sent back, return -1 instead, and leave the presses for the next tick.
+
+    if (rewinds > 0 && rewind())
+      return -1;
+    input = pulses;
+    pulses = 0;
+    if (left)
+      input |= AsteroidsWorld.LEFT;
+    if (right)
+      input |= AsteroidsWorld.RIGHT;
+    if (up)
+      input |= AsteroidsWorld.UP;
+    if (down)
+      input |= AsteroidsWorld.DOWN;
+    return input;
+  }
+
+  public void playSounds() {
+
+    // Post the one shot sounds raised during the last tick to the mixer. This never waits.
+
+    if (!sound)
+      return;
+    if ((world.soundEvents & AsteroidsWorld.CRASH_SOUND) != 0)
+      mixer.play(CRASH);
+    if ((world.soundEvents & AsteroidsWorld.EXPLOSION_SOUND) != 0)
+      mixer.play(EXPLOSION);
+    if ((world.soundEvents & AsteroidsWorld.FIRE_SOUND) != 0)
+      mixer.play(FIRE);
+    if ((world.soundEvents & AsteroidsWorld.WARP_SOUND) != 0)
+      mixer.play(WARP);
+  }
+
+  public void updateSounds() {
+
+    // Called on every frame, paused or not: silence everything if sound has just been turned
+    // off, then start or stop the looping sounds to match the world. Only the game loop posts
+    // to the mixer.
+
+    if (!sound && soundPlaying)
+      mixer.stopAll();
+    soundPlaying = sound;
+    loopSounds(sound && !paused);
+  }
+
+  public void loopSounds(boolean on) {
+
+    boolean b;
+
+    b = on && world.thrustersPlaying;
+    if (b != thrustersPlaying) {
+      if (b)
+        mixer.loop(THRUSTERS);
+      else
+        mixer.stop(THRUSTERS);
+      thrustersPlaying = b;
+    }
+    b = on && world.saucerPlaying;
+    if (b != saucerPlaying) {
+      if (b)
+        mixer.loop(SAUCER);
+      else
+        mixer.stop(SAUCER);
+      saucerPlaying = b;
+    }
+    b = on && world.misslePlaying;
+    if (b != misslePlaying) {
+      if (b)
+        mixer.loop(MISSLE);
+      else
+        mixer.stop(MISSLE);
+      misslePlaying = b;
+    }
+  }
+
+  public void keyPressed(KeyEvent e) {
+
+    int key;
+
+    // Hand keys on as the old event model did: cursor keys by their key code, letters and the
+    // spacebar by their lower case character. Anything else is ignored.
+
+    if (e.isActionKey())
+      keyDown(e, e.getKeyCode());
+    else {
+      key = Character.toLowerCase(e.getKeyChar());
+      if (key == ' ' || (key >= 'a' && key <= 'z'))
+        keyDown(e, key);
+    }
+  }
+
+  public void keyReleased(KeyEvent e) {
+
+    if (e.isActionKey())
+      keyUp(e, e.getKeyCode());
+  }
+
+  public void keyTyped(KeyEvent e) {}
+
+  public boolean keyDown(KeyEvent e, int key) {
+
+    // Check if any cursor keys have been pressed and set flags.
+
+    synchronized (this) {
+      if (key == KeyEvent.VK_LEFT)
+        left = true;
+      if (key == KeyEvent.VK_RIGHT)
+        right = true;
+      if (key == KeyEvent.VK_UP)
+        up = true;
+      if (key == KeyEvent.VK_DOWN)
+        down = true;
+
+      // Spacebar: fire a photon on the next tick.
+
+      if (key == 32)
+        pulses |= AsteroidsWorld.FIRE;
+
+      // 'H' key: warp ship into hyperspace on the next tick.
+
+      if (key == 104)
+        pulses |= AsteroidsWorld.HYPER;
+    }
+
+    // 'P' key: toggle pause mode. The looping sound clips follow on the next frame.
+
+    if (key == 112)
+      paused = !paused;
+
+    // 'M' key: toggle sound on or off. Sounds are stopped on the next frame.
+
+    if (key == 109)
+      sound = !sound;
+
+    // 'R' key: rewind the game on the next tick.
+
+    if (key == 114)
+      synchronized (this) {
+        rewinds++;
+      }
+
+    // 'O' key: turn the profiler on or off, 'W' key: write out the profile.
+
+    if (key == 111)
+      synchronized (this) {
+        profiling = !profiling;
+      }
+    if (key == 119)
+      synchronized (this) {
+        writeProfile = true;
+      }
+
+    // 'D' key: toggle graphics detail on or off on the next tick.
+
+    if (key == 100)
+      synchronized (this) {
+        pulses |= AsteroidsWorld.DETAIL;
+      }
+
+    // 'S' key: start the game on the next tick, if not already in progress.
+
+    if (key == 115 && !world.playing) {
+      synchronized (this) {
+        pulses |= AsteroidsWorld.START;
+      }
+      paused = false;
+    }
+
+    return true;
+  }
+
+  public boolean keyUp(KeyEvent e, int key) {
+
+    // Check if any cursor keys where released and set flags.
+
+    synchronized (this) {
+      if (key == KeyEvent.VK_LEFT)
+        left = false;
+      if (key == KeyEvent.VK_RIGHT)
+        right = false;
+      if (key == KeyEvent.VK_UP)
+        up = false;
+      if (key == KeyEvent.VK_DOWN)
+        down = false;
+    }
+
+    return true;
+  }
+
+  public void paint(Graphics g) {
+
+    // The window needs all of it drawn again, not just what changed.
+
+    if (renderer != null && renderer.dirty != null)
+      renderer.dirty.invalidate();
+    update(g);
+  }
+
+  public void update(Graphics g) {
+
+    Dimension d = getSize();
+    Graphics offGraphics;
+    int status;
+
+    if (canvas != null || d.width <= 0 || d.height <= 0)
+      return;
+
+    do {
+
+      // Create the offscreen image if no good one exists. It lives in video memory where it can
+      // be, which may be lost (it is then restored and drawn again) or may no longer suit the
+      // screen (it is then created anew). Either way, in dirty rectangle mode the last frame is
+      // gone from it and the next is drawn whole.
+
+      if (offImage == null || d.width != offDimension.width || d.height != offDimension.height) {
+        offDimension = d;
+        offImage = createVolatileImage(d.width, d.height);
+        if (offImage == null)
+          return;
+        if (renderer.dirty != null)
+          renderer.dirty.invalidate();
+      }
+      status = offImage.validate(getGraphicsConfiguration());
+      if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+        offImage = createVolatileImage(d.width, d.height);
+        if (offImage == null)
+          return;
+      }
+      if (status != VolatileImage.IMAGE_OK && renderer.dirty != null)
+        renderer.dirty.invalidate();
+
+      // Draw the game.
+
+      offGraphics = offImage.createGraphics();
+      synchronized (world) {
+        updateRenderer();
+        renderer.paint(offGraphics, d.width, d.height);
+      }
+      offGraphics.dispose();
+
+      // Copy the off screen buffer to the screen, or just the parts of it that changed.
+
+      if (renderer.dirty != null)
+        renderer.dirty.copy(offImage, g, this);
+      else
+        g.drawImage(offImage, 0, 0, this);
+    } while (offImage.contentsLost());
+  }
+}
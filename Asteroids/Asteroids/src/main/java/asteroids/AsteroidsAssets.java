@@ -0,0 +1,309 @@
+/************************************************************************************************
+
+AsteroidsAssets.java
+
+  Usage:
+
+  java asteroids.AsteroidsAssets pack file...
+
+  Loads the game's sound clips in the background, several at once, and hands each one to the
+  mixer as soon as it is decoded, so the game can start straight away and each sound is heard
+  from the moment it is ready. Each clip is looked for, in turn:
+
+    in an asset pack, if one was opened: a single file holding every clip, mapped into memory
+    so the clips are decoded straight out of it without being read or copied,
+
+    on the class path, next to the game's classes (the build puts the clips there, so they are
+    found in the jar),
+
+    next to the page the applet came from, as the original game loaded them.
+
+  Run as a program, packs the given files into an asset pack.
+
+  Pack format (all numbers big endian):
+
+    int  magic       'A' 'S' 'P' 'K'
+    int  count
+    count entries:
+      UTF  name      File name, without its directory.
+      int  offset    Where the file's bytes start, from the start of the pack,
+      int  length    and how many there are.
+    the files' bytes
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.*;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class AsteroidsAssets {
+
+  // Constants
+
+  static final int MAGIC   = 0x4153504b;    // "ASPK"
+  static final int THREADS = 4;             // Least loading threads, since loads mostly wait.
+
+  // Fields:
+
+  AsteroidsMixer mixer;
+  String[]       names;     // Clip file names, in the mixer's clip order.
+
+  ByteBuffer     pack;      // Opened asset pack, or null, and its index.
+  String[]       packNames;
+  int[]          packOffsets;
+  int[]          packLengths;
+  URL            base;      // Where the applet came from, or null.
+
+  ExecutorService pool;
+  AtomicInteger   ready;    // Clips finished, whether they loaded or not, and how many failed.
+  AtomicInteger   failed;
+  long            startTime;    // When the loader was made.
+  long[]          readyTime;    // When each clip was handed to the mixer, or 0.
+  volatile long   doneTime;     // When the last one finished, or 0.
+
+  // Constructors:
+
+  public AsteroidsAssets(AsteroidsMixer mixer, String[] names) {
+
+    this.mixer = mixer;
+    this.names = names;
+    ready = new AtomicInteger();
+    failed = new AtomicInteger();
+    readyTime = new long[names.length];
+    startTime = System.nanoTime();
+  }
+
+  // Methods:
+
+  public void openPack(File file) throws IOException {
+
+    ByteBuffer b;
+    DataInputStream in;
+    int i, n;
+
+    // Map the pack and read its index. The index is small, so it is read through a stream over
+    // the mapped bytes.
+
+    b = AsteroidsReplay.map(file);
+    in = new DataInputStream(new ByteArrayInputStream(bytes(b, 0, Math.min(b.capacity(), 65536))));
+    if (in.readInt() != MAGIC)
+      throw new IOException("Not an asset pack");
+    n = in.readInt();
+    packNames = new String[n];
+    packOffsets = new int[n];
+    packLengths = new int[n];
+    for (i = 0; i < n; i++) {
+      packNames[i] = in.readUTF();
+      packOffsets[i] = in.readInt();
+      packLengths[i] = in.readInt();
+      if (packOffsets[i] < 0 || packLengths[i] < 0 || (long) packOffsets[i] + packLengths[i] > b.capacity())
+        throw new IOException("Asset pack is damaged");
+    }
+    pack = b;
+  }
+
+  public void setBase(URL base) {
+
+    this.base = base;
+  }
+
+  public synchronized void start() {
+
+    int i;
+
+    // Hand every clip to the pool at once. The threads are daemons, and go away by themselves
+    // once the last clip is done.
+
+    if (pool != null)
+      return;
+    pool = Executors.newFixedThreadPool(Math.min(names.length, Math.max(THREADS, Runtime.getRuntime().availableProcessors())),
+                                        new ThreadFactory() {
+                                          public Thread newThread(Runnable r) {
+                                            Thread t = new Thread(r, "Asteroids loader");
+                                            t.setDaemon(true);
+                                            return t;
+                                          }
+                                        });
+    for (i = 0; i < names.length; i++)
+      pool.execute(loader(i));
+    pool.shutdown();
+  }
+
+  Runnable loader(final int n) {
+
+    return new Runnable() {
+      public void run() {
+        load(n);
+      }
+    };
+  }
+
+  public void load(int n) {
+
+    // Fetch and decode one clip and give it to the mixer. A clip that can't be had, for
+    // whatever reason (a missing file, a truncated pack, a bad header), is left out and the game
+    // plays on without it. Either way the clip is counted as done, so loading always finishes.
+
+    try {
+      mixer.setClip(n, AsteroidsMixer.decode(find(names[n])));
+      readyTime[n] = System.nanoTime();
+    }
+    catch (IOException e) {
+      failed.incrementAndGet();
+      System.out.println("Can't load " + names[n] + ": " + e.getMessage());
+    }
+    catch (RuntimeException e) {
+      failed.incrementAndGet();
+      System.out.println("Can't load " + names[n] + ": " + e);
+    }
+    finally {
+      if (ready.incrementAndGet() == names.length)
+        doneTime = System.nanoTime();
+    }
+  }
+
+  ByteBuffer find(String name) throws IOException {
+
+    URL url;
+    int i;
+
+    if (pack != null)
+      for (i = 0; i < packNames.length; i++)
+        if (packNames[i].equals(name))
+          return slice(pack, packOffsets[i], packLengths[i]);
+    url = AsteroidsAssets.class.getResource(name);
+    if (url != null)
+      return read(url);
+    if (base != null)
+      return read(new URL(base, name));
+    throw new FileNotFoundException(name);
+  }
+
+  public int ready() {
+
+    return ready.get();
+  }
+
+  public boolean isDone() {
+
+    return ready.get() == names.length;
+  }
+
+  public boolean await(long millis) throws InterruptedException {
+
+    start();
+    return pool.awaitTermination(millis, TimeUnit.MILLISECONDS);
+  }
+
+  public String report() {
+
+    long first;
+    int i;
+
+    first = 0;
+    for (i = 0; i < names.length; i++)
+      if (readyTime[i] > 0 && (first == 0 || readyTime[i] < first))
+        first = readyTime[i];
+    return "Sounds: " + (ready.get() - failed.get()) + " of " + names.length + " loaded"
+         + (first > 0 ? ", first after " + (first - startTime) / 1000000 + " ms" : "")
+         + (doneTime > 0 ? ", all after " + (doneTime - startTime) / 1000000 + " ms" : "")
+         + (pack != null ? " (from pack)" : "");
+  }
+
+  static ByteBuffer slice(ByteBuffer b, int offset, int length) {
+
+    ByteBuffer d;
+
+    d = b.duplicate();
+    d.position(offset);
+    d.limit(offset + length);
+    return d.slice();
+  }
+
+  static byte[] bytes(ByteBuffer b, int offset, int length) {
+
+    byte[] a;
+
+    a = new byte[length];
+    slice(b, offset, length).get(a);
+    return a;
+  }
+
+  static ByteBuffer read(URL url) throws IOException {
+
+    InputStream in;
+    ByteArrayOutputStream out;
+    byte[] b;
+    int n;
+
+    in = url.openStream();
+    try {
+      out = new ByteArrayOutputStream();
+      b = new byte[8192];
+      while ((n = in.read(b)) > 0)
+        out.write(b, 0, n);
+      return ByteBuffer.wrap(out.toByteArray());
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  static void writePack(File file, File[] files) throws IOException {
+
+    ByteArrayOutputStream index;
+    DataOutputStream d, out;
+    byte[][] data;
+    int i, offset;
+
+    // Work out the size of the index first, since the offsets depend on it.
+
+    data = new byte[files.length][];
+    index = new ByteArrayOutputStream();
+    d = new DataOutputStream(index);
+    for (i = 0; i < files.length; i++) {
+      data[i] = bytes(AsteroidsReplay.map(files[i]), 0, (int) files[i].length());
+      d.writeUTF(files[i].getName());
+      d.writeInt(0);
+      d.writeInt(0);
+    }
+    offset = 8 + index.size();
+
+    out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      out.writeInt(MAGIC);
+      out.writeInt(files.length);
+      for (i = 0; i < files.length; i++) {
+        out.writeUTF(files[i].getName());
+        out.writeInt(offset);
+        out.writeInt(data[i].length);
+        offset += data[i].length;
+      }
+      for (i = 0; i < files.length; i++)
+        out.write(data[i]);
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+
+    File[] files;
+    int i;
+
+    if (args.length < 2) {
+      System.out.println("Usage: java asteroids.AsteroidsAssets pack file...");
+      System.exit(2);
+    }
+    files = new File[args.length - 1];
+    for (i = 1; i < args.length; i++)
+      files[i - 1] = new File(args[i]);
+    writePack(new File(args[0]), files);
+    System.out.println("Packed " + files.length + " files into " + args[0]);
+  }
+}
@@ -0,0 +1,263 @@
+/************************************************************************************************
+
+AsteroidsBatch.java
+
+  Usage:
+
+  java -Djava.awt.headless=true asteroids.AsteroidsBatch [options] [RULE=value,value,...] ...
+
+  -games n      Games to play for each set of rules (default 10,000).
+  -threads n    Threads to play them on (default one per processor).
+  -pilot name   Pilot to play with, spin or aim (default aim).
+  -ticks n      Longest a game may last before it is cut short (default 36,000, half an hour).
+  -seed n       Seed the games' seeds are made from (default 1).
+  -report n     Seconds between reports while the batch runs (default 10).
+  -shots n, -rocks n, -scrap n
+                Pool sizes, as for AsteroidsBenchmark.
+
+  Plays many headless games for every combination of the rules given (names as in
+  AsteroidsRules, e.g. MAX_ROCK_SPEED=8,12,16 HYPER_COUNT=30,60) and reports, for each set of
+  rules, the spread of final scores, how many ticks the pilot survived and how many flying
+  saucers it shot down. A report of everything played so far is printed every few seconds
+  while the batch runs, and once more at the end.
+
+  The games are split into chunks that are handed to a pool of threads. Every game has its own
+  world, pilot and seed, so the threads share nothing while playing, and each chunk adds its
+  results into the totals once, when it is done. Each game's seed comes from the batch seed,
+  its set of rules and its number, so a batch gives the same results on any number of threads.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class AsteroidsBatch {
+
+  static final int WIDTH  = 640;      // Playfield size used for every game.
+  static final int HEIGHT = 480;
+
+  static final int CHUNK = 16;        // Games per task handed to a thread.
+
+  // Settings.
+
+  static int    games   = 10000;
+  static int    threads = Runtime.getRuntime().availableProcessors();
+  static String pilot   = "aim";
+  static int    maxTicks = 36000;
+  static long   seed    = 1;
+  static int    report  = 10;
+  static int    shots   = AsteroidsWorld.MAX_SHOTS;
+  static int    rocks   = AsteroidsWorld.MAX_ROCKS;
+  static int    scrap   = AsteroidsWorld.MAX_SCRAP;
+
+  // One entry per set of rules: the rules and the totals so far, which are only touched while
+  // holding the lock on the score histogram.
+
+  static AsteroidsRules[]     cells;
+  static AsteroidsHistogram[] scores;
+  static AsteroidsHistogram[] survival;
+  static long[]               ufoKills;
+  static long[]               cutShort;
+
+  static AtomicLong played = new AtomicLong();
+
+  public static void main(String[] args) throws Exception {
+
+    List<String> names;
+    List<int[]> values;
+    ExecutorService pool;
+    List<Future<?>> tasks;
+    long startTime, total;
+    int i, c, g;
+
+    // Read the options, then the grid of rules.
+
+    names = new ArrayList<String>();
+    values = new ArrayList<int[]>();
+    for (i = 0; i < args.length; i++)
+      if (args[i].startsWith("-") && i + 1 < args.length) {
+        if (args[i].equals("-games"))
+          games = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-threads"))
+          threads = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-pilot"))
+          pilot = args[++i];
+        else if (args[i].equals("-ticks"))
+          maxTicks = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-seed"))
+          seed = Long.parseLong(args[++i]);
+        else if (args[i].equals("-report"))
+          report = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-shots"))
+          shots = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-rocks"))
+          rocks = Integer.parseInt(args[++i]);
+        else if (args[i].equals("-scrap"))
+          scrap = Integer.parseInt(args[++i]);
+        else
+          throw new IllegalArgumentException("Unknown option: " + args[i]);
+      }
+      else if (args[i].indexOf('=') > 0) {
+        names.add(args[i].substring(0, args[i].indexOf('=')));
+        values.add(parseValues(args[i].substring(args[i].indexOf('=') + 1)));
+      }
+      else
+        throw new IllegalArgumentException("Expected RULE=value,...: " + args[i]);
+    newPilot(pilot);
+    grid(names, values);
+
+    System.out.println("Batch:      " + cells.length + " sets of rules x " + games + " games, "
+                       + pilot + " pilot, " + threads + " threads");
+
+    // Hand out the chunks a round at a time across the sets of rules, so the reports show
+    // every set filling in together.
+
+    startTime = System.nanoTime();
+    pool = Executors.newFixedThreadPool(threads);
+    tasks = new ArrayList<Future<?>>();
+    for (g = 0; g < games; g += CHUNK)
+      for (c = 0; c < cells.length; c++)
+        tasks.add(pool.submit(chunk(c, g, Math.min(games, g + CHUNK))));
+    pool.shutdown();
+    total = (long) cells.length * games;
+    while (!pool.awaitTermination(report, TimeUnit.SECONDS))
+      report(startTime, total);
+
+    // Pass on anything that went wrong in a task.
+
+    for (Future<?> task : tasks)
+      task.get();
+    report(startTime, total);
+  }
+
+  static int[] parseValues(String s) {
+
+    String[] parts;
+    int[] v;
+    int i;
+
+    parts = s.split(",");
+    v = new int[parts.length];
+    for (i = 0; i < parts.length; i++)
+      v[i] = Integer.parseInt(parts[i].trim());
+    return v;
+  }
+
+  static void grid(List<String> names, List<int[]> values) {
+
+    int n, c, i, k;
+
+    // Build one set of rules for each combination of values, the last rule varying fastest.
+
+    n = 1;
+    for (int[] v : values)
+      n *= v.length;
+    cells = new AsteroidsRules[n];
+    scores = new AsteroidsHistogram[n];
+    survival = new AsteroidsHistogram[n];
+    ufoKills = new long[n];
+    cutShort = new long[n];
+    for (c = 0; c < n; c++) {
+      cells[c] = new AsteroidsRules();
+      k = c;
+      for (i = names.size() - 1; i >= 0; i--) {
+        cells[c].set(names.get(i), values.get(i)[k % values.get(i).length]);
+        k /= values.get(i).length;
+      }
+      scores[c] = new AsteroidsHistogram();
+      survival[c] = new AsteroidsHistogram();
+    }
+  }
+
+  static AsteroidsPilot newPilot(String name) {
+
+    if (name.equals("spin"))
+      return new AsteroidsSpinPilot();
+    if (name.equals("aim"))
+      return new AsteroidsAimPilot();
+    throw new IllegalArgumentException("Unknown pilot: " + name);
+  }
+
+  static long gameSeed(int cell, int game) {
+
+    AsteroidsRandom r;
+
+    // Mix the batch seed with the set of rules and game number, so nearby games get unrelated
+    // seeds.
+
+    r = new AsteroidsRandom(seed ^ ((long) cell << 32) ^ game);
+    return r.nextLong();
+  }
+
+  static Runnable chunk(final int cell, final int first, final int last) {
+
+    return new Runnable() {
+      public void run() {
+        play(cell, first, last);
+      }
+    };
+  }
+
+  static void play(int cell, int first, int last) {
+
+    AsteroidsHistogram s, t;
+    AsteroidsWorld world;
+    AsteroidsPilot p;
+    long kills, cut;
+    int g;
+
+    // Play the games into totals of the chunk's own, then add those to the set's totals.
+
+    s = new AsteroidsHistogram();
+    t = new AsteroidsHistogram();
+    kills = 0;
+    cut = 0;
+    for (g = first; g < last; g++) {
+      world = new AsteroidsWorld(WIDTH, HEIGHT, shots, rocks, scrap, gameSeed(cell, g), cells[cell]);
+      p = newPilot(pilot);
+      world.step(AsteroidsWorld.START);
+      while (world.playing && world.ticks < maxTicks)
+        world.step(p.input(world));
+      if (world.playing)
+        cut++;
+      s.record(world.score);
+      t.record(world.ticks);
+      kills += world.ufoKills;
+    }
+    synchronized (scores[cell]) {
+      scores[cell].add(s);
+      survival[cell].add(t);
+      ufoKills[cell] += kills;
+      cutShort[cell] += cut;
+    }
+    played.addAndGet(last - first);
+  }
+
+  static void report(long startTime, long total) {
+
+    double seconds;
+    long n;
+    int c;
+
+    seconds = (System.nanoTime() - startTime) / 1e9;
+    n = played.get();
+    System.out.println();
+    System.out.println("Played:     " + n + " of " + total + " games in " + Math.round(seconds) + " s, "
+                       + Math.round(n / seconds) + " games/sec");
+    System.out.println("   games   score mean    p10    p50    p90    max   ticks mean    p50    p90   ufos/game   cut   rules");
+    for (c = 0; c < cells.length; c++)
+      synchronized (scores[c]) {
+        System.out.println(String.format(Locale.ROOT, "%8d %12.0f %6d %6d %6d %6d %12.0f %6d %6d %11.3f %5d   %s",
+                                         scores[c].count, scores[c].mean(),
+                                         scores[c].percentile(10), scores[c].percentile(50),
+                                         scores[c].percentile(90), scores[c].max,
+                                         survival[c].mean(), survival[c].percentile(50),
+                                         survival[c].percentile(90),
+                                         scores[c].count > 0 ? (double) ufoKills[c] / scores[c].count : 0.0,
+                                         cutShort[c], cells[c]));
+      }
+  }
+}
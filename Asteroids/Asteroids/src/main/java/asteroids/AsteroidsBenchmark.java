@@ -0,0 +1,705 @@
+/************************************************************************************************
+
+AsteroidsBenchmark.java
+
+  Usage:
+
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark [-shots n] [-rocks n] [-scrap n] [-seed n] [-threads n] [ticks] [target]
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark -collide [tests]
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark -loop [seconds] [tickrate] [framerate]
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark [-shots n] [-rocks n] [-scrap n] [-seed n] [-threads n] -verify [ticks]
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark -profile [ticks] [file]
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark -sound [seconds] [directory]
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark -load [parallel|sequential] [pack]
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark [-shots n] [-rocks n] [-scrap n] [-seed n] -record file [ticks]
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark -replay file
+  java -Djava.awt.headless=true asteroids.AsteroidsBenchmark [-shots n] [-rocks n] [-scrap n] [-seed n] -seek [ticks] [seeks]
+
+  Runs a headless game with a simple scripted pilot for the given number of ticks (default
+  1,000,000) and reports the simulation throughput in ticks per second, on one core unless
+  -threads is given, along with the bytes allocated per tick and the garbage collections seen
+  during the run. If a target rate is given and the measured rate falls below it, the exit
+  status is 1. The pool sizes can be raised for stress runs, e.g. -rocks 2000 -scrap 10000, and
+  -threads shares out the sprite updates among that many threads (0, the default, for none)
+  with an AsteroidsParallel.
+
+  With -collide, times AsteroidsSprite.isColliding() against the original vertex-in-polygon
+  test on random pairs of asteroids scattered over the playfield.
+
+  With -loop, runs the game in real time for the given number of seconds (default 10) the way
+  the applet does, painting each frame into an offscreen image, and reports the ticks dropped
+  and the frame time jitter measured by the loop's AsteroidsClock.
+
+  With -verify, plays two games from the same seed side by side (default 1,000,000 ticks) and
+  checks that they stay identical, tick for tick. With -threads the second game runs on that
+  many threads, and must still match the first, which runs without.
+
+  With -profile, times the pilot's game (default 1,000,000 ticks) with and without an
+  AsteroidsProfiler attached to show what profiling costs, then draws a few thousand frames as
+  well and prints the profile, or writes it in full to the file if one is given.
+
+  With -sound, plays the pilot's game in real time for the given number of seconds (default
+  10) with its sounds going to an AsteroidsMixer, the clips read from the given directory
+  (default Asteroids), and reports the longest the game thread spent posting a sound and the
+  latency from posting a sound to it being heard.
+
+  With -load, starts the game from cold the way the applet does and reports how long after the
+  JVM started the first frame was drawn, the game could be played and every sound was loaded.
+  The clips are loaded in parallel in the background (the default), or one after another with
+  the game waiting for them all, as the applet used to. They come from the asset pack if one is
+  given, otherwise from the class path. Run it in a fresh JVM each time.
+
+  With -record, plays a game with the pilot (default 1,000,000 ticks) and writes it to a
+  recording. -replay plays a recording back, reporting how fast its input decodes and how fast
+  the game replays, and the checksum of the final state, which must match the one reported when
+  it was recorded.
+
+  With -seek, plays a session (default 72,000 ticks, an hour of play) through an
+  AsteroidsTimeline, then times taking and restoring snapshots and seeking to random ticks,
+  checking after each seek that the world matches the one played straight through.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.Graphics;
+import java.awt.Polygon;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.lang.management.*;
+import java.util.Random;
+
+public class AsteroidsBenchmark {
+
+  static final int WIDTH  = 640;           // Playfield size used for the run.
+  static final int HEIGHT = 480;
+
+  static final int WARMUP_TICKS = 200000;  // Ticks run before timing starts.
+  static final int PROFILE_FRAMES = 5000;  // Frames drawn for the profile's paint times.
+
+  static int shots = AsteroidsWorld.MAX_SHOTS;
+  static int rocks = AsteroidsWorld.MAX_ROCKS;
+  static int scrap = AsteroidsWorld.MAX_SCRAP;
+  static long seed = 1;
+  static int threads = 0;
+
+  public static void main(String[] args) throws IOException {
+
+    AsteroidsWorld world;
+    long ticks, target;
+    long bytes, gcCount, gcTime;
+    double rate;
+    int i;
+
+    if (args.length > 0 && args[0].equals("-collide")) {
+      collide(args.length > 1 ? Integer.parseInt(args[1]) : 10000000);
+      return;
+    }
+    if (args.length > 0 && args[0].equals("-profile")) {
+      profile(args.length > 1 ? Long.parseLong(args[1]) : 1000000, args.length > 2 ? new File(args[2]) : null);
+      return;
+    }
+    if (args.length > 0 && args[0].equals("-sound")) {
+      sound(args.length > 1 ? Integer.parseInt(args[1]) : 10, new File(args.length > 2 ? args[2] : "Asteroids"));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("-load")) {
+      load(args.length < 2 || !args[1].equals("sequential"), args.length > 2 ? new File(args[2]) : null);
+      return;
+    }
+    if (args.length > 1 && args[0].equals("-replay")) {
+      replay(new File(args[1]));
+      return;
+    }
+    if (args.length > 0 && args[0].equals("-loop")) {
+      loop(args.length > 1 ? Integer.parseInt(args[1]) : 10,
+           args.length > 2 ? Integer.parseInt(args[2]) : AsteroidsClock.TICK_RATE,
+           args.length > 3 ? Integer.parseInt(args[3]) : AsteroidsClock.FRAME_RATE);
+      return;
+    }
+
+    for (i = 0; i < args.length && args[i].startsWith("-"); i += 2)
+      if (args[i].equals("-shots"))
+        shots = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-rocks"))
+        rocks = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-scrap"))
+        scrap = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-seed"))
+        seed = Long.parseLong(args[i + 1]);
+      else if (args[i].equals("-threads"))
+        threads = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-verify")) {
+        verify(args.length > i + 1 ? Long.parseLong(args[i + 1]) : 1000000);
+        return;
+      }
+      else if (args[i].equals("-seek")) {
+        seek(args.length > i + 1 ? Integer.parseInt(args[i + 1]) : 72000,
+             args.length > i + 2 ? Integer.parseInt(args[i + 2]) : 10000);
+        return;
+      }
+      else if (args[i].equals("-record")) {
+        record(new File(args[i + 1]), args.length > i + 2 ? Long.parseLong(args[i + 2]) : 1000000);
+        return;
+      }
+    ticks = 1000000;
+    target = 0;
+    if (args.length > i)
+      ticks = Long.parseLong(args[i]);
+    if (args.length > i + 1)
+      target = Long.parseLong(args[i + 1]);
+
+    // Warm up, then time the run.
+
+    world = threaded(newWorld());
+    run(world, Math.min(ticks, WARMUP_TICKS));
+    unthreaded(world);
+    world = threaded(newWorld());
+    bytes = allocatedBytes();
+    gcCount = gcCount();
+    gcTime = gcTime();
+    rate = run(world, ticks);
+    bytes = allocatedBytes() - bytes;
+    gcCount = gcCount() - gcCount;
+    gcTime = gcTime() - gcTime;
+    unthreaded(world);
+
+    System.out.println("Simulation: " + ticks + " ticks, " + Math.round(rate) + " ticks/sec");
+    if (bytes >= 0)
+      System.out.println("Allocation: " + Math.round((double) bytes / ticks) + " bytes/tick");
+    System.out.println("GC:         " + gcCount + " collections, " + gcTime + " ms");
+    if (target > 0 && rate < target) {
+      System.out.println("Below target of " + target + " ticks/sec");
+      System.exit(1);
+    }
+  }
+
+  static AsteroidsWorld newWorld() {
+
+    return new AsteroidsWorld(WIDTH, HEIGHT, shots, rocks, scrap, seed);
+  }
+
+  static AsteroidsWorld threaded(AsteroidsWorld world) {
+
+    // Give the world the threads asked for with -threads, if any.
+
+    if (threads > 0)
+      world.parallel = new AsteroidsParallel(threads);
+    return world;
+  }
+
+  static void unthreaded(AsteroidsWorld world) {
+
+    // Stop the threads threaded() gave the world, once it is done with them.
+
+    if (world.parallel != null)
+      world.parallel.shutdown();
+    world.parallel = null;
+  }
+
+  static double run(AsteroidsWorld world, long ticks) {
+
+    long i, startTime;
+
+    // Play game after game until the tick count is reached.
+
+    startTime = System.nanoTime();
+    for (i = 0; i < ticks; i++) {
+      if (!world.playing)
+        world.initGame();
+      world.step(pilot(i));
+    }
+    return ticks * 1e9 / (System.nanoTime() - startTime);
+  }
+
+  static void loop(int seconds, int tickRate, int frameRate) {
+
+    AsteroidsWorld world;
+    AsteroidsRenderer renderer;
+    AsteroidsClock clock;
+    BufferedImage image;
+    Graphics g;
+    long tick, endTime;
+    int n;
+
+    // Run the same loop as the applet, with the pilot at the controls and a BufferedImage for
+    // a screen.
+
+    world = newWorld();
+    renderer = new AsteroidsRenderer(world);
+    renderer.loaded = true;
+    clock = new AsteroidsClock(tickRate, frameRate);
+    image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    g = image.getGraphics();
+    tick = 0;
+    clock.start(System.nanoTime());
+    endTime = System.nanoTime() + seconds * 1000000000L;
+    try {
+      while (System.nanoTime() < endTime) {
+        n = clock.frame(System.nanoTime(), true);
+        while (n-- > 0) {
+          if (!world.playing)
+            world.initGame();
+          world.step(pilot(tick++));
+        }
+        renderer.alpha = clock.alpha();
+        renderer.paint(g, WIDTH, HEIGHT);
+        AsteroidsClock.sleep(clock.sleepTime(System.nanoTime()));
+      }
+    }
+    catch (InterruptedException e) {}
+    g.dispose();
+    System.out.println(clock.report());
+  }
+
+  static void profile(long ticks, File file) throws IOException {
+
+    AsteroidsProfiler profiler;
+    AsteroidsWorld world;
+    AsteroidsRenderer renderer;
+    BufferedImage image;
+    Graphics g;
+    double plain, profiled;
+    long start;
+    int i;
+
+    // Warm up both ways of stepping the world, then time each.
+
+    profiler = new AsteroidsProfiler(1000000000L / AsteroidsClock.TICK_RATE, 1000000000L / AsteroidsClock.FRAME_RATE);
+    run(newWorld(), Math.min(ticks, WARMUP_TICKS));
+    world = newWorld();
+    world.profiler = profiler;
+    run(world, Math.min(ticks, WARMUP_TICKS));
+    profiler.reset();
+    plain = run(newWorld(), ticks);
+    world = newWorld();
+    world.profiler = profiler;
+    profiled = run(world, ticks);
+
+    // Carry on drawing a frame after every tick for a while, so painting is profiled too.
+
+    renderer = new AsteroidsRenderer(world);
+    renderer.loaded = true;
+    image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    g = image.getGraphics();
+    for (i = 0; i < PROFILE_FRAMES; i++) {
+      start = System.nanoTime();
+      if (!world.playing)
+        world.initGame();
+      world.step(pilot(world.ticks));
+      renderer.paint(g, WIDTH, HEIGHT);
+      profiler.frame(System.nanoTime() - start);
+    }
+    g.dispose();
+
+    System.out.println("Simulation: " + Math.round(plain) + " ticks/sec, " + Math.round(profiled)
+                       + " ticks/sec profiled (" + Math.round(100 * (plain / profiled - 1)) + "% overhead)");
+    System.out.println();
+    if (file != null) {
+      profiler.dump(file);
+      System.out.println("Profile written to " + file);
+    }
+    else
+      profiler.summary(System.out);
+  }
+
+  static void sound(int seconds, File dir) throws IOException {
+
+    AsteroidsWorld world;
+    AsteroidsMixer mixer;
+    AsteroidsHistogram post;
+    long start, next;
+    int i, tick;
+    int[] loops;
+    boolean[] looping;
+    boolean b;
+
+    // Load the clips the way the applet does.
+
+    mixer = new AsteroidsMixer(Asteroids.SOUNDS.length);
+    for (i = 0; i < Asteroids.SOUNDS.length; i++)
+      mixer.setClip(i, AsteroidsMixer.decode(AsteroidsAssets.read(new File(dir, Asteroids.SOUNDS[i]).toURI().toURL())));
+    mixer.start();
+
+    // Play at the game's own pace, posting each tick's sounds and timing every post.
+
+    world = newWorld();
+    post = new AsteroidsHistogram();
+    loops = new int[] {Asteroids.THRUSTERS, Asteroids.SAUCER, Asteroids.MISSLE};
+    looping = new boolean[3];
+    next = System.nanoTime();
+    for (tick = 0; tick < seconds * AsteroidsClock.TICK_RATE; tick++) {
+      if (!world.playing)
+        world.initGame();
+      world.step(pilot(tick));
+      start = System.nanoTime();
+      if ((world.soundEvents & AsteroidsWorld.CRASH_SOUND) != 0)
+        mixer.play(Asteroids.CRASH);
+      if ((world.soundEvents & AsteroidsWorld.EXPLOSION_SOUND) != 0)
+        mixer.play(Asteroids.EXPLOSION);
+      if ((world.soundEvents & AsteroidsWorld.FIRE_SOUND) != 0)
+        mixer.play(Asteroids.FIRE);
+      if ((world.soundEvents & AsteroidsWorld.WARP_SOUND) != 0)
+        mixer.play(Asteroids.WARP);
+      for (i = 0; i < 3; i++) {
+        b = i == 0 ? world.thrustersPlaying : i == 1 ? world.saucerPlaying : world.misslePlaying;
+        if (b != looping[i]) {
+          if (b)
+            mixer.loop(loops[i]);
+          else
+            mixer.stop(loops[i]);
+          looping[i] = b;
+        }
+      }
+      post.record(System.nanoTime() - start);
+      next += 1000000000L / AsteroidsClock.TICK_RATE;
+      try {
+        AsteroidsClock.sleep(next - System.nanoTime());
+      }
+      catch (InterruptedException e) {}
+    }
+    mixer.stop();
+
+    System.out.println("Posting:    " + post.count + " ticks, " + AsteroidsProfiler.tenths(post.mean()) + " us mean, "
+                       + AsteroidsProfiler.tenths(post.max) + " us max on the game thread");
+    System.out.println(mixer.report());
+  }
+
+  static void load(boolean parallel, File pack) throws IOException {
+
+    final AsteroidsAssets assets;
+    AsteroidsRenderer renderer;
+    Thread loader;
+    BufferedImage image;
+    Graphics g;
+    long startTime, firstFrame, playable;
+    int i;
+
+    startTime = System.nanoTime();
+    assets = new AsteroidsAssets(new AsteroidsMixer(Asteroids.SOUNDS.length), Asteroids.SOUNDS);
+    assets.setBase(new File("Asteroids").toURI().toURL());
+    if (pack != null)
+      assets.openPack(pack);
+
+    // Start loading, either on the pool or, as the applet used to, one clip after another on a
+    // thread of its own.
+
+    loader = null;
+    if (parallel)
+      assets.start();
+    else {
+      loader = new Thread() {
+        public void run() {
+          int i;
+
+          for (i = 0; i < Asteroids.SOUNDS.length; i++)
+            assets.load(i);
+        }
+      };
+      loader.start();
+    }
+
+    // Draw the first frame, then wait for the sounds. Loading in the background, the game can be
+    // played from the first frame; loading one after another, only once every clip is in.
+
+    renderer = new AsteroidsRenderer(newWorld());
+    renderer.loaded = assets.isDone();
+    renderer.soundsReady = assets.ready();
+    renderer.soundsTotal = Asteroids.SOUNDS.length;
+    image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+    g = image.getGraphics();
+    renderer.paint(g, WIDTH, HEIGHT);
+    g.dispose();
+    firstFrame = System.nanoTime();
+    try {
+      if (parallel)
+        assets.await(60000);
+      else
+        loader.join();
+    }
+    catch (InterruptedException e) {}
+    playable = parallel ? firstFrame : Math.max(firstFrame, assets.doneTime);
+
+    i = (int) (System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime()
+               - (System.nanoTime() - startTime) / 1000000);
+    System.out.println("Loading:    " + (parallel ? "parallel" : "sequential") + ", from "
+                       + (pack != null ? pack.toString() : "the class path"));
+    System.out.println("Startup:    " + i + " ms from JVM start to main");
+    System.out.println("First frame: " + (i + (firstFrame - startTime) / 1000000) + " ms after JVM start");
+    System.out.println("Playable:   " + (i + (playable - startTime) / 1000000) + " ms after JVM start");
+    System.out.println("All sounds: " + (i + (assets.doneTime - startTime) / 1000000) + " ms after JVM start");
+    System.out.println(assets.report());
+  }
+
+  static void verify(long ticks) {
+
+    AsteroidsWorld a, b;
+    long i;
+
+    // Both games get the same seed and the same input, so they must never differ.
+
+    a = newWorld();
+    b = threaded(newWorld());
+    for (i = 0; i < ticks; i++) {
+      if (!a.playing)
+        a.initGame();
+      if (!b.playing)
+        b.initGame();
+      a.step(pilot(i));
+      b.step(pilot(i));
+      if (checksum(a) != checksum(b)) {
+        System.out.println("Games differ at tick " + i);
+        System.exit(1);
+      }
+    }
+    unthreaded(b);
+    System.out.println("Games identical for " + ticks + " ticks, checksum " + Long.toHexString(checksum(a)));
+  }
+
+  static void record(File file, long ticks) throws IOException {
+
+    AsteroidsWorld world;
+    AsteroidsRecorder recorder;
+    long i;
+    int input;
+
+    // Play with the pilot, starting each new game through the input like a player would.
+
+    world = newWorld();
+    recorder = new AsteroidsRecorder(file, world);
+    for (i = 0; i < ticks; i++) {
+      input = pilot(i);
+      if (!world.playing)
+        input |= AsteroidsWorld.START;
+      recorder.record(input);
+      world.step(input);
+    }
+    recorder.close();
+    System.out.println("Recorded:   " + ticks + " ticks, " + recorder.bytes + " bytes, checksum " + Long.toHexString(checksum(world)));
+  }
+
+  static void replay(File file) throws IOException {
+
+    AsteroidsReplay replay;
+    AsteroidsWorld world;
+    long startTime, decodeTime, playTime, ticks, sum;
+
+    // Decode the whole recording without playing it, then play it.
+
+    replay = new AsteroidsReplay(file);
+    sum = 0;
+    startTime = System.nanoTime();
+    while (replay.next() >= 0)
+      sum++;
+    decodeTime = System.nanoTime() - startTime;
+
+    replay = new AsteroidsReplay(file);
+    world = replay.newWorld();
+    startTime = System.nanoTime();
+    ticks = replay.play(world, Long.MAX_VALUE);
+    playTime = System.nanoTime() - startTime;
+
+    System.out.println("Decoded:    " + sum + " ticks, " + Math.round(sum * 1e9 / decodeTime) + " ticks/sec");
+    System.out.println("Replayed:   " + ticks + " ticks, " + Math.round(ticks * 1e9 / playTime) + " ticks/sec, checksum " + Long.toHexString(checksum(world)));
+  }
+
+  static void seek(int ticks, int seeks) {
+
+    AsteroidsWorld world;
+    AsteroidsTimeline timeline;
+    AsteroidsSnapshot snapshot;
+    long[] sums;
+    long startTime, saveTime, restoreTime, seekTime, maxSeek, t, bytes;
+    Random random;
+    int i, input, reps;
+
+    // Play the session through a timeline holding keyframes for all of it, noting the state
+    // after every tick.
+
+    world = newWorld();
+    timeline = new AsteroidsTimeline(world, AsteroidsTimeline.INTERVAL, ticks / AsteroidsTimeline.INTERVAL + 1);
+    sums = new long[ticks + 1];
+    sums[0] = checksum(world);
+    for (i = 0; i < ticks; i++) {
+      input = pilot(i);
+      if (!world.playing)
+        input |= AsteroidsWorld.START;
+      timeline.step(input);
+      sums[i + 1] = checksum(world);
+    }
+
+    // Time snapshots of the final state.
+
+    snapshot = new AsteroidsSnapshot(world);
+    reps = 100000;
+    bytes = allocatedBytes();
+    startTime = System.nanoTime();
+    for (i = 0; i < reps; i++)
+      snapshot.save(world);
+    saveTime = (System.nanoTime() - startTime) / reps;
+    startTime = System.nanoTime();
+    for (i = 0; i < reps; i++)
+      snapshot.restore(world);
+    restoreTime = (System.nanoTime() - startTime) / reps;
+    bytes = allocatedBytes() - bytes;
+    if (checksum(world) != sums[ticks]) {
+      System.out.println("Restored snapshot differs");
+      System.exit(1);
+    }
+
+    // Seek to random ticks and check each one.
+
+    random = new Random(seed);
+    seekTime = maxSeek = 0;
+    for (i = 0; i < seeks; i++) {
+      input = random.nextInt(ticks + 1);
+      startTime = System.nanoTime();
+      timeline.seek(input);
+      t = System.nanoTime() - startTime;
+      seekTime += t;
+      maxSeek = Math.max(maxSeek, t);
+      if (checksum(world) != sums[input]) {
+        System.out.println("Seek to tick " + input + " differs");
+        System.exit(1);
+      }
+    }
+
+    System.out.println("Session:    " + ticks + " ticks, " + timeline.count + " keyframes every " + timeline.interval + " ticks");
+    System.out.println("Snapshot:   " + snapshot.size() + " bytes, save " + saveTime + " ns, restore " + restoreTime + " ns, "
+                       + Math.max(0, bytes / (2 * reps)) + " bytes allocated");
+    System.out.println("Seek:       " + seeks + " seeks, " + (seekTime / seeks / 1000) + " us mean, " + (maxSeek / 1000) + " us max");
+  }
+
+  static long checksum(AsteroidsWorld world) {
+
+    long h;
+    int k, i;
+
+    // Mix the score, counters and the position of everything in play into one number.
+
+    h = world.score;
+    h = h * 31 + world.shipsLeft;
+    h = h * 31 + world.asteroidsLeft;
+    h = h * 31 + world.random.state;
+    h = h * 31 + Double.doubleToLongBits(world.ship.getX());
+    h = h * 31 + Double.doubleToLongBits(world.ship.getY());
+    for (k = 0; k < world.asteroidPool.count; k++) {
+      i = world.asteroidPool.live[k];
+      h = h * 31 + Double.doubleToLongBits(world.asteroids[i].getX());
+      h = h * 31 + Double.doubleToLongBits(world.asteroids[i].getY());
+    }
+    return h;
+  }
+
+  static int pilot(long tick) {
+
+    int input;
+
+    // Keep turning, fire a shot every few ticks and give the thrusters an occasional burst.
+
+    input = AsteroidsWorld.LEFT;
+    if (tick % 4 == 0)
+      input |= AsteroidsWorld.FIRE;
+    if (tick % 50 < 5)
+      input |= AsteroidsWorld.UP;
+    return input;
+  }
+
+  static long allocatedBytes() {
+
+    ThreadMXBean bean;
+
+    // Bytes allocated so far by this thread, or -1 if the JVM can't tell us.
+
+    bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean)
+      return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+    return -1;
+  }
+
+  static long gcCount() {
+
+    long n;
+
+    n = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+      n += Math.max(0, gc.getCollectionCount());
+    return n;
+  }
+
+  static long gcTime() {
+
+    long t;
+
+    t = 0;
+    for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans())
+      t += Math.max(0, gc.getCollectionTime());
+    return t;
+  }
+
+  static void collide(int tests) {
+
+    AsteroidsSprite[] rocks;
+    Random random;
+    long startTime, oldTime, newTime;
+    double theta, r;
+    int i, j, k, oldHits, newHits;
+
+    // Scatter a set of rocks over the playfield, the way a busy game would have them.
+
+    random = new Random(1);
+    rocks = new AsteroidsSprite[256];
+    for (i = 0; i < rocks.length; i++) {
+      rocks[i] = new AsteroidsSprite(WIDTH, HEIGHT);
+      k = AsteroidsWorld.MIN_ROCK_SIDES + random.nextInt(AsteroidsWorld.MAX_ROCK_SIDES - AsteroidsWorld.MIN_ROCK_SIDES);
+      for (j = 0; j < k; j++) {
+        theta = 2 * Math.PI / k * j;
+        r = AsteroidsWorld.MIN_ROCK_SIZE + random.nextInt(AsteroidsWorld.MAX_ROCK_SIZE - AsteroidsWorld.MIN_ROCK_SIZE);
+        rocks[i].addPoint((int) -Math.round(r * Math.sin(theta)), (int) Math.round(r * Math.cos(theta)));
+      }
+      rocks[i].setAngle(random.nextDouble() * 2 * Math.PI);
+      rocks[i].setX(random.nextDouble() * WIDTH - WIDTH / 2);
+      rocks[i].setY(random.nextDouble() * HEIGHT - HEIGHT / 2);
+      rocks[i].render();
+    }
+
+    // Time each test over the same pairs, twice so the second pass is warmed up.
+
+    oldTime = newTime = 0;
+    oldHits = newHits = 0;
+    for (k = 0; k < 2; k++) {
+      oldHits = newHits = 0;
+      startTime = System.nanoTime();
+      for (i = 0; i < tests; i++)
+        if (collidesByVertices(rocks[i & 255], rocks[(i >> 8) & 255]))
+          oldHits++;
+      oldTime = System.nanoTime() - startTime;
+      startTime = System.nanoTime();
+      for (i = 0; i < tests; i++)
+        if (rocks[i & 255].isColliding(rocks[(i >> 8) & 255]))
+          newHits++;
+      newTime = System.nanoTime() - startTime;
+    }
+
+    System.out.println("Vertex test:   " + tests + " pairs, " + oldHits + " hits, " + (oldTime / tests) + " ns/pair");
+    System.out.println("isColliding(): " + tests + " pairs, " + newHits + " hits, " + (newTime / tests) + " ns/pair");
+  }
+
+  static boolean collidesByVertices(AsteroidsSprite a, AsteroidsSprite b) {
+
+    Polygon p, q;
+    int i;
+
+    // The original collision test: does any vertex of one sprite land inside the other?
+
+    p = a.sprite;
+    q = b.sprite;
+    for (i = 0; i < q.npoints; i++)
+      if (p.contains(q.xpoints[i], q.ypoints[i]))
+        return true;
+    for (i = 0; i < p.npoints; i++)
+      if (q.contains(p.xpoints[i], p.ypoints[i]))
+        return true;
+    return false;
+  }
+}
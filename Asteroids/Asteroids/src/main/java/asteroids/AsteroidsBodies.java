@@ -0,0 +1,146 @@
+/************************************************************************************************
+
+AsteroidsBodies.java
+
+  Storage for the motion and shape of a set of sprites, kept as one primitive array per value
+  rather than one object per sprite. Moving a whole pool of sprites is then a single pass over
+  a few double[] arrays instead of a walk across the heap, one object at a time.
+
+  Each AsteroidsSprite is a view of one slot in a store. Sprites that stand alone (the ship,
+  flying saucer and missle) get a store of their own with a single slot.
+
+  A store also holds the size of the playfield its sprites wrap around, which is the size of
+  the world that made it, so worlds of different sizes can run side by side.
+
+  The position before the last move is kept as well, so a frame drawn between two ticks can
+  place each sprite part way along its path. Setting a position directly moves both, as a jump
+  rather than a move.
+
+  Shapes are packed into shapeX and shapeY, with room for stride points per slot. The stride
+  grows if a shape is given more points than it has room for.
+
+************************************************************************************************/
+
+package asteroids;
+
+class AsteroidsBodies {
+
+  // Fields:
+
+  double[]  x, y;              // Current position on screen.
+  double[]  prevX, prevY;      // Position before the last move.
+  double[]  deltaX, deltaY;    // Amount to change the screen position.
+  double[]  angle;             // Current angle of rotation.
+  double[]  deltaAngle;        // Amount to change the rotation angle.
+  boolean[] active;            // Active flags.
+
+  int   stride;                // Room for points in each slot's shape.
+  int[] shapeX, shapeY;        // Shape points, centered at the origin (0,0), stride per slot.
+  int[] points;                // Number of points in each slot's shape.
+
+  int   width;                 // Dimensions of the playfield.
+  int   height;
+
+  boolean exact;               // Rotate by Math.cos() and sin() rather than by table, as games
+                               // recorded before version 2 were played.
+
+  // Constructors:
+
+  public AsteroidsBodies(int capacity, int stride, int width, int height) {
+
+    this.width = width;
+    this.height = height;
+    this.x = new double[capacity];
+    this.y = new double[capacity];
+    this.prevX = new double[capacity];
+    this.prevY = new double[capacity];
+    this.deltaX = new double[capacity];
+    this.deltaY = new double[capacity];
+    this.angle = new double[capacity];
+    this.deltaAngle = new double[capacity];
+    this.active = new boolean[capacity];
+    this.stride = Math.max(1, stride);
+    this.shapeX = new int[capacity * this.stride];
+    this.shapeY = new int[capacity * this.stride];
+    this.points = new int[capacity];
+  }
+
+  // Methods:
+
+  public int capacity() {
+
+    return active.length;
+  }
+
+  public void advance(int[] slots, int from, int to) {
+
+    int k;
+
+    // Move each listed slot. The per-slot work is small enough for the JIT to inline, leaving
+    // one tight loop over the primitive arrays.
+
+    for (k = from; k < to; k++)
+      advance(slots[k]);
+  }
+
+  public void advance(int i) {
+
+    double a, px, py;
+
+    // Update the rotation and position of a slot based on its delta values. If it moves off the
+    // edge of the screen, it is wrapped around to the other side.
+
+    a = angle[i] + deltaAngle[i];
+    if (a < 0)
+      a += 2 * Math.PI;
+    if (a > 2 * Math.PI)
+      a -= 2 * Math.PI;
+    angle[i] = a;
+    prevX[i] = x[i];
+    prevY[i] = y[i];
+    px = x[i] + deltaX[i];
+    if (px < -width / 2)
+      px += width;
+    if (px > width / 2)
+      px -= width;
+    x[i] = px;
+    py = y[i] - deltaY[i];
+    if (py < -height / 2)
+      py += height;
+    if (py > height / 2)
+      py -= height;
+    y[i] = py;
+  }
+
+  public void resetShape(int i) {
+
+    points[i] = 0;
+  }
+
+  public void addPoint(int i, int px, int py) {
+
+    if (points[i] >= stride)
+      growStride(stride * 2);
+    shapeX[i * stride + points[i]] = px;
+    shapeY[i * stride + points[i]] = py;
+    points[i]++;
+  }
+
+  void growStride(int n) {
+
+    int[] sx, sy;
+    int i;
+
+    // Repack every shape with room for n points per slot.
+
+    sx = new int[capacity() * n];
+    sy = new int[capacity() * n];
+    for (i = 0; i < capacity(); i++) {
+      System.arraycopy(shapeX, i * stride, sx, i * n, points[i]);
+      System.arraycopy(shapeY, i * stride, sy, i * n, points[i]);
+    }
+    shapeX = sx;
+    shapeY = sy;
+    stride = n;
+  }
+}
@@ -0,0 +1,162 @@
+/************************************************************************************************
+
+AsteroidsCanvas.java
+
+  A canvas drawn by active rendering. Rather than asking for a repaint and waiting for the AWT
+  event thread to get around to it, the game loop draws each frame straight into a back buffer
+  and flips it onto the screen when it is done, so a frame reaches the screen as soon as it is
+  drawn.
+
+  The back buffers come from a BufferStrategy, which uses page flipping where the platform
+  supports it and accelerated (volatile) images otherwise. The contents of those can be lost
+  at any time, when the display mode changes or another program takes over the video memory,
+  in which case the frame is simply drawn again.
+
+  In dirty rectangle mode (see AsteroidsDirty) the frame is kept in a volatile image of the
+  canvas's own instead, since a back buffer need not keep what was drawn in it from one flip to
+  the next, and only the parts of it that changed are copied to the screen. The system's
+  requests to repaint are then let through, so that when the canvas is uncovered the next frame
+  is copied whole.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.*;
+import java.awt.image.BufferStrategy;
+import java.awt.image.VolatileImage;
+
+class AsteroidsCanvas extends Canvas {
+
+  // Constants
+
+  static final int BUFFERS = 2;    // Number of buffers, the screen and one back buffer.
+
+  // Fields:
+
+  BufferStrategy strategy;
+  VolatileImage  frame;                 // The kept frame, in dirty rectangle mode, and whether
+  volatile boolean exposed;             // the system has asked for a repaint since it was shown.
+
+  // Constructors:
+
+  public AsteroidsCanvas() {
+
+    // All drawing is done by showFrame(), so ignore requests from the system to repaint.
+
+    setIgnoreRepaint(true);
+    setBackground(Color.black);
+  }
+
+  // Methods:
+
+  public boolean showFrame(AsteroidsRenderer renderer) {
+
+    Graphics g;
+    int w, h;
+
+    // Draw a frame and put it on the screen. Returns false if the canvas is not on screen yet
+    // (or no image could be had to keep the frame in), in which case nothing is drawn.
+
+    w = getWidth();
+    h = getHeight();
+    if (!isDisplayable() || w <= 0 || h <= 0)
+      return false;
+    if (renderer.dirty != null)
+      return showChanges(renderer, w, h);
+    if (strategy == null) {
+      createBufferStrategy(BUFFERS);
+      strategy = getBufferStrategy();
+    }
+
+    // Draw the frame, again if the back buffer was lost while drawing it, then flip it onto the
+    // screen, again if it was lost before it got there.
+
+    do {
+      do {
+        g = strategy.getDrawGraphics();
+        try {
+          renderer.paint(g, w, h);
+        }
+        finally {
+          g.dispose();
+        }
+      } while (strategy.contentsRestored());
+      strategy.show();
+    } while (strategy.contentsLost());
+
+    // Some window systems queue drawing commands, push this frame out now.
+
+    Toolkit.getDefaultToolkit().sync();
+    return true;
+  }
+
+  boolean showChanges(AsteroidsRenderer renderer, int w, int h) {
+
+    Graphics g;
+    int status;
+
+    if (frame == null || frame.getWidth() != w || frame.getHeight() != h) {
+      frame = createVolatileImage(w, h);
+      if (frame == null)
+        return false;
+      setIgnoreRepaint(false);
+      renderer.dirty.invalidate();
+    }
+
+    // Draw the frame into the kept image, whole if the image was lost or the canvas uncovered,
+    // and copy what changed to the screen. If the image was lost before it was all copied, do
+    // it again.
+
+    do {
+      status = frame.validate(getGraphicsConfiguration());
+      if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+        frame = createVolatileImage(w, h);
+        if (frame == null)
+          return false;
+      }
+      if (status != VolatileImage.IMAGE_OK || exposed)
+        renderer.dirty.invalidate();
+      exposed = false;
+      g = frame.createGraphics();
+      try {
+        renderer.paint(g, w, h);
+      }
+      finally {
+        g.dispose();
+      }
+      g = getGraphics();
+      if (g == null)
+        return false;
+      try {
+        renderer.dirty.copy(frame, g, null);
+      }
+      finally {
+        g.dispose();
+      }
+    } while (frame.contentsLost());
+    Toolkit.getDefaultToolkit().sync();
+    return true;
+  }
+
+  public void paint(Graphics g) {
+
+    // The system wants the canvas drawn again, so copy the next frame whole.
+
+    exposed = true;
+  }
+
+  public void update(Graphics g) {
+
+    paint(g);
+  }
+
+  public void removeNotify() {
+
+    // The buffers belong to the native peer and go when it does.
+
+    strategy = null;
+    frame = null;
+    super.removeNotify();
+  }
+}
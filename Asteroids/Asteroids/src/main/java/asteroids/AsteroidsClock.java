@@ -0,0 +1,143 @@
+/************************************************************************************************
+
+AsteroidsClock.java
+
+  Paces a fixed-timestep game loop. The simulation always moves forward in whole ticks of the
+  same length, whatever the frame rate, while frames are drawn on their own schedule. Time
+  that passes between frames is collected in an accumulator and paid out as ticks; whatever is
+  left over, as a fraction of a tick, tells the renderer how far to interpolate between the
+  last two ticks.
+
+  If the loop falls too far behind (a slow machine, a long garbage collection, the window
+  being dragged) only a limited number of ticks are run to catch up and the rest are dropped,
+  so the game slows down for a moment instead of stalling in a burst of catch-up ticks.
+
+  The clock also keeps count of dropped ticks and of how far each frame strayed from its
+  schedule, so both can be reported when the loop stops.
+
+************************************************************************************************/
+
+package asteroids;
+
+class AsteroidsClock {
+
+  // Constants
+
+  static final int TICK_RATE    = 20;     // Default ticks and frames per second.
+  static final int FRAME_RATE   = 60;
+  static final int MAX_CATCH_UP =  5;     // Most ticks run for one frame before dropping some.
+
+  // Fields:
+
+  long   tickNanos;        // Length of one tick and of one frame.
+  long   frameNanos;
+  int    maxCatchUp;
+
+  long   accumulator;      // Time not yet paid out as ticks.
+  long   lastTime;         // Time of the previous frame.
+  long   nextFrame;        // Time the next frame is due.
+
+  // Statistics.
+
+  long   ticks;            // Ticks run and ticks dropped.
+  long   droppedTicks;
+  long   frames;           // Frames started, and the sum and maximum of how late or early
+  long   jitterSum;        // each one was against the frame rate.
+  long   maxJitter;
+  long   lateFrames;       // Frames more than a whole frame late.
+
+  // Constructors:
+
+  public AsteroidsClock() {
+
+    this(TICK_RATE, FRAME_RATE);
+  }
+
+  public AsteroidsClock(int tickRate, int frameRate) {
+
+    this.tickNanos = 1000000000L / Math.max(1, tickRate);
+    this.frameNanos = 1000000000L / Math.max(1, frameRate);
+    this.maxCatchUp = MAX_CATCH_UP;
+  }
+
+  // Methods:
+
+  public void start(long now) {
+
+    accumulator = 0;
+    lastTime = now;
+    nextFrame = now + frameNanos;
+    ticks = droppedTicks = 0;
+    frames = jitterSum = maxJitter = lateFrames = 0;
+  }
+
+  public int frame(long now, boolean running) {
+
+    long elapsed, jitter;
+    int n;
+
+    // Start a new frame and return the number of ticks to run for it. While the game is not
+    // running (paused) time still passes but nothing is added to the accumulator.
+
+    elapsed = now - lastTime;
+    lastTime = now;
+    if (frames > 0) {
+      jitter = Math.abs(elapsed - frameNanos);
+      jitterSum += jitter;
+      if (jitter > maxJitter)
+        maxJitter = jitter;
+      if (elapsed > 2 * frameNanos)
+        lateFrames++;
+    }
+    frames++;
+
+    if (!running)
+      return 0;
+    accumulator += elapsed;
+    n = (int) Math.min(maxCatchUp, accumulator / tickNanos);
+    accumulator -= n * tickNanos;
+
+    // Drop whatever the catch-up limit left behind, keeping only the fraction of a tick.
+
+    if (accumulator >= tickNanos) {
+      droppedTicks += accumulator / tickNanos;
+      accumulator %= tickNanos;
+    }
+    ticks += n;
+    return n;
+  }
+
+  public double alpha() {
+
+    // How far the current frame lies between the last tick and the next one, from 0 to 1.
+
+    return (double) accumulator / tickNanos;
+  }
+
+  public long sleepTime(long now) {
+
+    // Nanoseconds to wait before the next frame is due. If the loop has fallen more than a
+    // frame behind the schedule is moved up rather than rushing frames to catch it.
+
+    nextFrame += frameNanos;
+    if (nextFrame < now - frameNanos)
+      nextFrame = now;
+    return Math.max(0, nextFrame - now);
+  }
+
+  public static void sleep(long nanos) throws InterruptedException {
+
+    if (nanos > 0)
+      Thread.sleep(nanos / 1000000, (int) (nanos % 1000000));
+  }
+
+  public String report() {
+
+    double jitter;
+
+    jitter = frames > 1 ? jitterSum / 1e6 / (frames - 1) : 0;
+    return "Loop: " + ticks + " ticks, " + droppedTicks + " dropped; " + frames + " frames, "
+         + lateFrames + " late, jitter " + Math.round(jitter * 100) / 100.0 + " ms mean, "
+         + Math.round(maxJitter / 1e4) / 100.0 + " ms max";
+  }
+}
@@ -0,0 +1,197 @@
+/************************************************************************************************
+
+AsteroidsDirty.java
+
+  The parts of the screen that change from one frame to the next, for AsteroidsRenderer's dirty
+  rectangle mode. In that mode the frame is kept from one paint to the next, and only the parts
+  where something was drawn last frame or is drawn this one are drawn again (the stars first,
+  then whatever lies over them) and copied to the screen.
+
+  The screen is cut into tiles TILE pixels square. The renderer marks the box around each
+  sprite and each line of text it is about to draw, and every tile a box touches is marked as
+  covered this frame. A tile is dirty if it was covered last frame or is this frame, so a
+  sprite's old place is cleared as its new one is drawn. The dirty tiles are then gathered into
+  rectangles, runs of them along each row joined with the same run in the row above, so there
+  are few rectangles to draw and copy.
+
+  When more than LIMIT of the tiles are dirty, drawing them a rectangle at a time would cost
+  more than drawing the frame whole, so the whole frame is drawn and copied instead. It is also
+  drawn whole the first time, whenever the frame changes size and whenever the host says what
+  is on the screen can't be trusted (a lost or new image, or a window uncovered).
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.*;
+import java.awt.image.ImageObserver;
+import java.util.Arrays;
+
+class AsteroidsDirty {
+
+  // Constants
+
+  static final int    TILE   = 32;      // Width and height of a tile, in pixels.
+  static final double LIMIT  = 0.5;     // Most of the tiles that may be dirty before the frame is
+                                        // drawn whole.
+  static final int    MARGIN = 1;       // Pixels around a box that drawing it may touch.
+
+  // Fields:
+
+  double    limit;
+  int       width, height;      // Size of the frame, and of it in tiles.
+  int       cols, rows;
+  boolean[] covered;            // Tiles covered by the frame being drawn and by the last one.
+  boolean[] before;
+  boolean   valid;              // Whether the last frame is still on the screen to draw over.
+  boolean   full;               // Whether this frame is drawn whole.
+
+  int[] x = new int[16];        // Rectangles to draw and copy, in pixels, and how many.
+  int[] y = new int[16];
+  int[] w = new int[16];
+  int[] h = new int[16];
+  int   count;
+  int   dirtyTiles;
+
+  // Constructors:
+
+  public AsteroidsDirty() {
+
+    this(LIMIT);
+  }
+
+  public AsteroidsDirty(double limit) {
+
+    this.limit = limit;
+    covered = before = new boolean[0];
+  }
+
+  // Methods:
+
+  public void invalidate() {
+
+    valid = false;
+  }
+
+  public void begin(int width, int height) {
+
+    int i;
+
+    // Start marking a new frame, starting afresh if its size has changed.
+
+    if (width != this.width || height != this.height) {
+      this.width = width;
+      this.height = height;
+      cols = (width + TILE - 1) / TILE;
+      rows = (height + TILE - 1) / TILE;
+      covered = new boolean[cols * rows];
+      before = new boolean[cols * rows];
+      valid = false;
+    }
+    for (i = 0; i < covered.length; i++)
+      covered[i] = false;
+  }
+
+  public void mark(int x0, int y0, int x1, int y1) {
+
+    int r, c, c0, c1, r0, r1;
+
+    // Mark the tiles under the box from x0, y0 to x1, y1 (inclusive), as far as it is on the
+    // screen.
+
+    x0 = Math.max(x0 - MARGIN, 0);
+    y0 = Math.max(y0 - MARGIN, 0);
+    x1 = Math.min(x1 + MARGIN, width - 1);
+    y1 = Math.min(y1 + MARGIN, height - 1);
+    if (x0 > x1 || y0 > y1)
+      return;
+    c0 = x0 / TILE;
+    c1 = x1 / TILE;
+    r0 = y0 / TILE;
+    r1 = y1 / TILE;
+    for (r = r0; r <= r1; r++)
+      for (c = c0; c <= c1; c++)
+        covered[r * cols + c] = true;
+  }
+
+  public boolean finish() {
+
+    boolean[] t;
+    int r, c, c0, i;
+
+    // Count the dirty tiles, and decide whether to draw the frame whole.
+
+    dirtyTiles = 0;
+    for (i = 0; i < covered.length; i++)
+      if (covered[i] || before[i])
+        dirtyTiles++;
+    full = !valid || dirtyTiles > limit * covered.length;
+    count = 0;
+
+    // Otherwise gather the dirty tiles into rectangles. A run along a row that lines up with
+    // a rectangle ending on the row above makes that rectangle a row taller.
+
+    if (!full) {
+      for (r = 0; r < rows; r++)
+        for (c = 0; c < cols; ) {
+          if (!covered[r * cols + c] && !before[r * cols + c]) {
+            c++;
+            continue;
+          }
+          c0 = c;
+          while (c < cols && (covered[r * cols + c] || before[r * cols + c]))
+            c++;
+          for (i = 0; i < count; i++)
+            if (x[i] == c0 && w[i] == c - c0 && y[i] + h[i] == r)
+              break;
+          if (i < count)
+            h[i]++;
+          else
+            add(c0, r, c - c0, 1);
+        }
+      for (i = 0; i < count; i++) {
+        x[i] *= TILE;
+        y[i] *= TILE;
+        w[i] = Math.min(w[i] * TILE, width - x[i]);
+        h[i] = Math.min(h[i] * TILE, height - y[i]);
+      }
+    }
+
+    // This frame's tiles are the last frame's for the next one.
+
+    t = before;
+    before = covered;
+    covered = t;
+    valid = true;
+    return full;
+  }
+
+  void add(int x, int y, int w, int h) {
+
+    if (count == this.x.length) {
+      this.x = Arrays.copyOf(this.x, 2 * count);
+      this.y = Arrays.copyOf(this.y, 2 * count);
+      this.w = Arrays.copyOf(this.w, 2 * count);
+      this.h = Arrays.copyOf(this.h, 2 * count);
+    }
+    this.x[count] = x;
+    this.y[count] = y;
+    this.w[count] = w;
+    this.h[count] = h;
+    count++;
+  }
+
+  public void copy(Image image, Graphics g, ImageObserver observer) {
+
+    int i;
+
+    // Copy what changed in the last frame drawn from the image it was drawn into onto the
+    // screen.
+
+    if (full)
+      g.drawImage(image, 0, 0, observer);
+    else
+      for (i = 0; i < count; i++)
+        g.drawImage(image, x[i], y[i], x[i] + w[i], y[i] + h[i], x[i], y[i], x[i] + w[i], y[i] + h[i], observer);
+  }
+}
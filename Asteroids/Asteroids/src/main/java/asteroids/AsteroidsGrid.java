@@ -0,0 +1,182 @@
+/************************************************************************************************
+
+AsteroidsGrid.java
+
+  A uniform grid over the playfield used as the broad phase for collision detection. Sprites are
+  added by the bounding box saved when they were last rendered, and a query returns only those
+  whose boxes overlap the query sprite's box, so the exact (and much slower) test in
+  AsteroidsSprite.isColliding() only has to be run on likely pairs. A query changes nothing in
+  the grid, so any number of threads may query it at once (see AsteroidsParallel), each with an
+  AsteroidsQuery of its own.
+
+************************************************************************************************/
+
+package asteroids;
+
+class AsteroidsGrid {
+
+  // Fields:
+
+  int cellSize;       // Width and height of one cell, in pixels.
+  int cols, rows;     // Number of cells across and down.
+
+  int[] head;         // First entry for each cell, or -1 if the cell is empty.
+  int[] next;         // Next entry in the same cell, or -1.
+  int[] entryItem;    // Item stored in each entry.
+  int   entries;      // Number of entries in use.
+
+  int[] minX, minY;   // Bounding box of each item, indexed by item number.
+  int[] maxX, maxY;
+
+  // Constructors:
+
+  public AsteroidsGrid(int width, int height, int cellSize) {
+
+    this.cellSize = cellSize;
+    this.cols = Math.max(1, (width + cellSize - 1) / cellSize);
+    this.rows = Math.max(1, (height + cellSize - 1) / cellSize);
+    this.head = new int[cols * rows];
+    this.next = new int[16];
+    this.entryItem = new int[16];
+    this.minX = new int[8];
+    this.minY = new int[8];
+    this.maxX = new int[8];
+    this.maxY = new int[8];
+    clear();
+  }
+
+  // Methods:
+
+  public void clear() {
+
+    int i;
+
+    for (i = 0; i < head.length; i++)
+      head[i] = -1;
+    entries = 0;
+  }
+
+  public void add(int item, AsteroidsSprite s) {
+
+    int col0, col1, row0, row1, col, row;
+
+    // Save the sprite's bounding box and link it into every cell the box touches. Sprites are
+    // wrapped to the screen by AsteroidsSprite.advance(), but a polygon near an edge still hangs
+    // over it, so boxes are clamped to the outermost cells rather than wrapped around. That
+    // keeps every pair the exact test could find, since polygons are never tested across the
+    // wrap either.
+
+    if (item >= minX.length)
+      growItems(item + 1);
+    minX[item] = s.minX;
+    maxX[item] = s.maxX;
+    minY[item] = s.minY;
+    maxY[item] = s.maxY;
+
+    col0 = cellCol(s.minX);
+    col1 = cellCol(s.maxX);
+    row0 = cellRow(s.minY);
+    row1 = cellRow(s.maxY);
+    for (row = row0; row <= row1; row++)
+      for (col = col0; col <= col1; col++) {
+        if (entries >= next.length)
+          growEntries();
+        entryItem[entries] = item;
+        next[entries] = head[row * cols + col];
+        head[row * cols + col] = entries;
+        entries++;
+      }
+  }
+
+  public int query(AsteroidsSprite s, AsteroidsQuery q) {
+
+    int j, n, e, item;
+    int col, row;
+
+    // Find the items whose bounding boxes overlap (or touch) the sprite's box and return them
+    // in ascending order, the same order a loop over every item would test them. The number
+    // found is returned and the items are written to q.items. An item in several of the cells
+    // searched is found in each, and kept only the first time: the query marks it with its
+    // number in the caller's own q.mark, so the grid itself is only read.
+
+    if (q.items.length < minX.length) {
+      q.items = new int[minX.length];
+      q.mark = grow(q.mark, minX.length);
+    }
+    if (++q.queries == 0) {
+      for (j = 0; j < q.mark.length; j++)
+        q.mark[j] = 0;
+      q.queries = 1;
+    }
+    n = 0;
+    for (row = cellRow(s.minY); row <= cellRow(s.maxY); row++)
+      for (col = cellCol(s.minX); col <= cellCol(s.maxX); col++)
+        for (e = head[row * cols + col]; e >= 0; e = next[e]) {
+          item = entryItem[e];
+          if (q.mark[item] == q.queries)
+            continue;
+          q.mark[item] = q.queries;
+          if (minX[item] <= s.maxX && s.minX <= maxX[item] && minY[item] <= s.maxY && s.minY <= maxY[item]) {
+            for (j = n; j > 0 && q.items[j - 1] > item; j--)
+              q.items[j] = q.items[j - 1];
+            q.items[j] = item;
+            n++;
+          }
+        }
+    return n;
+  }
+
+  int cellCol(int x) {
+
+    return Math.max(0, Math.min(cols - 1, x / cellSize));
+  }
+
+  int cellRow(int y) {
+
+    return Math.max(0, Math.min(rows - 1, y / cellSize));
+  }
+
+  void growEntries() {
+
+    int[] a;
+
+    a = new int[next.length * 2];
+    System.arraycopy(next, 0, a, 0, next.length);
+    next = a;
+    a = new int[entryItem.length * 2];
+    System.arraycopy(entryItem, 0, a, 0, entryItem.length);
+    entryItem = a;
+  }
+
+  void growItems(int n) {
+
+    n = Math.max(n, minX.length * 2);
+    minX = grow(minX, n);
+    minY = grow(minY, n);
+    maxX = grow(maxX, n);
+    maxY = grow(maxY, n);
+  }
+
+  static int[] grow(int[] a, int n) {
+
+    int[] b;
+
+    b = new int[n];
+    System.arraycopy(a, 0, b, 0, a.length);
+    return b;
+  }
+}
+
+/************************************************************************************************
+  The AsteroidsQuery class is what one caller of AsteroidsGrid.query() keeps of its own: the
+  items the last query found, and the number of the query that last found each item.
+************************************************************************************************/
+
+class AsteroidsQuery {
+
+  // Fields:
+
+  int[] items = new int[0];     // Items found by the last query, in ascending order.
+  int[] mark = new int[0];      // Query number that last found each item, to skip duplicates.
+  int   queries;
+}
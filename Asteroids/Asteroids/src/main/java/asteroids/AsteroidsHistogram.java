@@ -0,0 +1,168 @@
+/************************************************************************************************
+
+AsteroidsHistogram.java
+
+  Counts values (scores, tick counts, nanoseconds) in buckets whose width grows with the value,
+  the way an HDR histogram does: values below 64 get a bucket each, and above that every power
+  of two is split into 32 buckets, so any value is known to within about 3% whether it is 50 or
+  50,000,000,000. Recording a value is a few shifts and an increment and never allocates, and
+  two histograms are combined by adding their counts, so each thread can keep its own and merge
+  them at the end.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+class AsteroidsHistogram {
+
+  // Constants
+
+  static final int SUB_BITS = 5;                 // Buckets per power of two, as a power of two.
+  static final int SUB      = 1 << SUB_BITS;
+  static final int BUCKETS  = (64 - SUB_BITS) * SUB;
+
+  // Fields:
+
+  long[] counts;
+  long   count;
+  long   sum;
+  long   min;
+  long   max;
+
+  // Constructors:
+
+  public AsteroidsHistogram() {
+
+    counts = new long[BUCKETS];
+    clear();
+  }
+
+  // Methods:
+
+  public void clear() {
+
+    int i;
+
+    for (i = 0; i < counts.length; i++)
+      counts[i] = 0;
+    count = 0;
+    sum = 0;
+    min = Long.MAX_VALUE;
+    max = 0;
+  }
+
+  public void record(long value) {
+
+    // Negative values are counted as zero.
+
+    if (value < 0)
+      value = 0;
+    counts[index(value)]++;
+    count++;
+    sum += value;
+    if (value < min)
+      min = value;
+    if (value > max)
+      max = value;
+  }
+
+  public void add(AsteroidsHistogram h) {
+
+    int i;
+
+    for (i = 0; i < counts.length; i++)
+      counts[i] += h.counts[i];
+    count += h.count;
+    sum += h.sum;
+    min = Math.min(min, h.min);
+    max = Math.max(max, h.max);
+  }
+
+  static int index(long value) {
+
+    int shift;
+
+    // Small values are their own bucket. Larger ones keep their top SUB_BITS + 1 bits.
+
+    if (value < 2 * SUB)
+      return (int) value;
+    shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+    return shift * SUB + (int) (value >>> shift);
+  }
+
+  static long highest(int index) {
+
+    int shift;
+
+    // The largest value that falls in a bucket.
+
+    if (index < 2 * SUB)
+      return index;
+    shift = index / SUB - 1;
+    return ((long) (index % SUB + SUB + 1) << shift) - 1;
+  }
+
+  public long percentile(double p) {
+
+    long n, seen;
+    int i;
+
+    // The value that the given percentage of the recorded values are at or below, to within
+    // the width of its bucket.
+
+    if (count == 0)
+      return 0;
+    n = Math.max(1, (long) Math.ceil(p / 100 * count));
+    seen = 0;
+    for (i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= n)
+        return Math.max(min, Math.min(max, highest(i)));
+    }
+    return max;
+  }
+
+  public double mean() {
+
+    return count > 0 ? (double) sum / count : 0;
+  }
+
+  public String summary(double scale) {
+
+    // Count, mean and the usual percentiles, with every value divided by scale.
+
+    return count + " values, mean " + format(mean() / scale)
+         + ", p50 " + format(percentile(50) / scale) + ", p90 " + format(percentile(90) / scale)
+         + ", p99 " + format(percentile(99) / scale) + ", p99.9 " + format(percentile(99.9) / scale)
+         + ", max " + format(max / scale);
+  }
+
+  public void print(PrintStream out, double scale) {
+
+    long seen;
+    int i;
+
+    // Write out every bucket in use, one to a line: its highest value divided by scale, its
+    // count and the percentage of values at or below it.
+
+    seen = 0;
+    for (i = 0; i < counts.length; i++)
+      if (counts[i] > 0) {
+        seen += counts[i];
+        out.println(format(Math.min(max, highest(i)) / scale) + "\t" + counts[i] + "\t"
+                    + format(Math.round(10000.0 * seen / count) / 100.0));
+      }
+  }
+
+  static String format(double value) {
+
+    // Whole numbers as they are, anything else to two decimal places.
+
+    if (value == Math.rint(value) && Math.abs(value) < 1e15)
+      return Long.toString((long) value);
+    return String.format(Locale.ROOT, "%.2f", value);
+  }
+}
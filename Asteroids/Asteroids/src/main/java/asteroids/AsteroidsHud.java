@@ -0,0 +1,334 @@
+/************************************************************************************************
+
+AsteroidsHud.java
+
+  The status text AsteroidsRenderer draws over the game, kept so that drawing it takes no new
+  strings and, on an accelerated surface, no text drawing at all.
+
+  Numbers (the score, ships left, high score and sounds loaded) are kept as a line of chars,
+  label and all, and when one changes only its digits from the first that differs onward are
+  written in again. Nothing is allocated to draw them, whether they change or not.
+
+  On an accelerated surface (as for the starfield) the text is copied from images. Each message
+  is drawn into an image of its own the first time it is shown, and each number line keeps an
+  image of itself, into which the changed digits are copied from an atlas of the digits drawn
+  once. Putting the status on the screen is then a few image copies, done by the graphics
+  hardware. In plain memory, copying the mostly empty image of a line costs about twice as much
+  as drawing its glyphs, which Java 2D keeps ready drawn anyway, so there the text is drawn.
+
+  The images hold the text just as drawString() would put it down, at the same place and with
+  the same text antialiasing as the graphics they are copied onto (grayscale where that is LCD
+  antialiasing, which an image with transparency can't hold). Each has a margin of PAD pixels
+  around the font's box for glyphs that reach outside it. If a digit reaches outside its own
+  advance, so that copying in one digit could disturb its neighbours, the whole line is drawn
+  again on a change instead.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.*;
+import java.awt.font.FontRenderContext;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+
+class AsteroidsHud {
+
+  // Constants
+
+  static final int    PAD    = 2;                 // Margin around text for overhanging glyphs.
+  static final String DIGITS = "0123456789-";     // Glyphs in the atlas.
+
+  // Fields:
+
+  Font        font;
+  FontMetrics fm;
+  boolean     images;           // Whether this frame's text is copied from images.
+  Object      antialias;        // Text hints of the graphics the text is drawn onto.
+  Object      fractional;
+  int         ascent;           // Baseline in every image, and the height of every image.
+  int         height;
+
+  BufferedImage digits;         // The atlas: a cell for each glyph in DIGITS, cellWidth wide,
+  int           cellWidth;      // with the glyph drawn PAD pixels in, and the advance of each.
+  int[]         advances;
+  int           maxAdvance;
+  boolean       fits;           // Whether every digit's pixels lie within its advance.
+
+  HashMap<String, BufferedImage> texts = new HashMap<String, BufferedImage>();
+
+  // Constructors:
+
+  public AsteroidsHud(Font font, FontMetrics fm, Graphics g) {
+
+    FontRenderContext frc;
+    Rectangle r;
+    int i;
+
+    this.font = font;
+    this.fm = fm;
+    antialias = ((Graphics2D) g).getRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING);
+    if (antialias != RenderingHints.VALUE_TEXT_ANTIALIAS_OFF && antialias != RenderingHints.VALUE_TEXT_ANTIALIAS_ON)
+      antialias = antialias == null || antialias == RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT
+                ? RenderingHints.VALUE_TEXT_ANTIALIAS_DEFAULT : RenderingHints.VALUE_TEXT_ANTIALIAS_ON;
+    fractional = ((Graphics2D) g).getRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS);
+    if (fractional == null)
+      fractional = RenderingHints.VALUE_FRACTIONALMETRICS_DEFAULT;
+    ascent = fm.getMaxAscent() + PAD;
+    height = ascent + fm.getMaxDescent() + PAD;
+
+    // See whether any digit reaches past its advance.
+
+    frc = fm.getFontRenderContext();
+    advances = new int[DIGITS.length()];
+    fits = true;
+    for (i = 0; i < advances.length; i++) {
+      advances[i] = fm.charWidth(DIGITS.charAt(i));
+      maxAdvance = Math.max(maxAdvance, advances[i]);
+      r = font.createGlyphVector(frc, DIGITS.substring(i, i + 1)).getPixelBounds(frc, 0, 0);
+      if (!r.isEmpty() && (r.x < 0 || r.x + r.width > advances[i]))
+        fits = false;
+    }
+    cellWidth = maxAdvance + 2 * PAD;
+  }
+
+  // Methods:
+
+  Graphics2D graphics(BufferedImage image) {
+
+    Graphics2D g;
+
+    g = image.createGraphics();
+    g.setFont(font);
+    g.setColor(Color.white);
+    g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, antialias);
+    g.setRenderingHint(RenderingHints.KEY_FRACTIONALMETRICS, fractional);
+    return g;
+  }
+
+  BufferedImage text(String s) {
+
+    BufferedImage image;
+    Graphics2D g;
+
+    // The message's image, drawn the first time it is asked for.
+
+    image = texts.get(s);
+    if (image == null) {
+      image = new BufferedImage(fm.stringWidth(s) + 2 * PAD, height, BufferedImage.TYPE_INT_ARGB);
+      g = graphics(image);
+      g.drawString(s, PAD, ascent);
+      g.dispose();
+      texts.put(s, image);
+    }
+    return image;
+  }
+
+  public void begin(Graphics g) {
+
+    // Get ready to draw a frame's status onto the given graphics.
+
+    images = AsteroidsRenderer.isAccelerated(g);
+    if (!images) {
+      g.setFont(font);
+      g.setColor(Color.white);
+    }
+  }
+
+  public int stringWidth(String s) {
+
+    return fm.stringWidth(s);
+  }
+
+  public void drawText(Graphics g, String s, int x, int y) {
+
+    // Draw the message with its baseline starting at x, y.
+
+    if (images)
+      g.drawImage(text(s), x - PAD, y - ascent, null);
+    else
+      g.drawString(s, x, y);
+  }
+
+  void drawDigit(Graphics g, int k, int x) {
+
+    Graphics2D d;
+    int i;
+
+    // Copy glyph k of the atlas in with its origin at x, drawing the atlas the first time.
+
+    if (digits == null) {
+      digits = new BufferedImage(advances.length * cellWidth, height, BufferedImage.TYPE_INT_ARGB);
+      d = graphics(digits);
+      for (i = 0; i < advances.length; i++)
+        d.drawString(DIGITS.substring(i, i + 1), i * cellWidth + PAD, ascent);
+      d.dispose();
+    }
+    g.drawImage(digits, x - PAD, 0, x - PAD + cellWidth, height, k * cellWidth, 0, (k + 1) * cellWidth, height, null);
+  }
+}
+
+/************************************************************************************************
+  The AsteroidsNumber class is one line of status text with a number in it, such as the score,
+  which is only written out again where the number changes.
+************************************************************************************************/
+
+class AsteroidsNumber {
+
+  // Constants
+
+  static final int MAX_DIGITS = 11;     // Longest int, with its sign.
+
+  // Fields:
+
+  AsteroidsHud hud;
+  String       label;           // Text before the number and after it (or null).
+  String       suffix;
+  int          labelWidth;
+  int          suffixWidth;
+
+  int    value;                 // Number shown, its glyphs in the atlas and how many there are.
+  int[]  glyphs = new int[MAX_DIGITS];
+  int    count;
+  char[] chars;                 // The whole line, its length and its advance.
+  int    length;
+  int    width;
+
+  BufferedImage image;          // Image of the line, made once it is first wanted, and the
+  Graphics2D    graphics;       // glyphs it holds.
+  int[]         drawn = new int[MAX_DIGITS];
+  int           drawnCount;
+
+  // Constructors:
+
+  public AsteroidsNumber(AsteroidsHud hud, String label, String suffix) {
+
+    this.hud = hud;
+    this.label = label;
+    this.suffix = suffix;
+    labelWidth = hud.fm.stringWidth(label);
+    suffixWidth = suffix != null ? hud.fm.stringWidth(suffix) : 0;
+    chars = new char[label.length() + MAX_DIGITS + (suffix != null ? suffix.length() : 0)];
+    label.getChars(0, label.length(), chars, 0);
+    count = -1;
+  }
+
+  // Methods:
+
+  public void set(int value) {
+
+    long v;
+    int i, n, first, t;
+
+    if (count >= 0 && value == this.value)
+      return;
+
+    // Work out the glyphs of the new value, last first, then turn them around.
+
+    n = 0;
+    v = Math.abs((long) value);
+    do {
+      glyphs[n++] = (int) (v % 10);
+      v /= 10;
+    } while (v > 0);
+    if (value < 0)
+      glyphs[n++] = AsteroidsHud.DIGITS.indexOf('-');
+    for (i = 0; i < n / 2; i++) {
+      t = glyphs[i];
+      glyphs[i] = glyphs[n - 1 - i];
+      glyphs[n - 1 - i] = t;
+    }
+
+    // Write the digits in again from the first that differs, and the suffix after them.
+
+    first = 0;
+    if (count >= 0)
+      while (first < count && first < n && chars[label.length() + first] == AsteroidsHud.DIGITS.charAt(glyphs[first]))
+        first++;
+    for (i = first; i < n; i++)
+      chars[label.length() + i] = AsteroidsHud.DIGITS.charAt(glyphs[i]);
+    length = label.length() + n;
+    if (suffix != null) {
+      suffix.getChars(0, suffix.length(), chars, length);
+      length += suffix.length();
+    }
+    count = n;
+    this.value = value;
+    width = hud.fm.charsWidth(chars, 0, length);
+  }
+
+  public int width() {
+
+    return width;
+  }
+
+  public void draw(Graphics g, int x, int y) {
+
+    int w;
+
+    // Draw the line with its baseline starting at x, y, from its image (leaving out the unused
+    // end of it) or from its chars.
+
+    if (hud.images) {
+      update();
+      w = width + 2 * AsteroidsHud.PAD;
+      g.drawImage(image, x - AsteroidsHud.PAD, y - hud.ascent, x - AsteroidsHud.PAD + w, y - hud.ascent + hud.height,
+                  0, 0, w, hud.height, null);
+    }
+    else
+      g.drawChars(chars, 0, length, x, y);
+  }
+
+  void update() {
+
+    Graphics2D g;
+    int i, first, x;
+
+    // Make the image the first time through.
+
+    if (image == null) {
+      image = new BufferedImage(labelWidth + MAX_DIGITS * hud.maxAdvance + suffixWidth + 2 * AsteroidsHud.PAD,
+                                hud.height, BufferedImage.TYPE_INT_ARGB);
+      graphics = hud.graphics(image);
+      drawnCount = -1;
+    }
+    g = graphics;
+
+    // Find the first glyph that differs from those in the image and clear the image from there
+    // on. The label is drawn the first time through, or every time if the glyphs can't be
+    // copied in on their own.
+
+    first = 0;
+    if (drawnCount >= 0)
+      while (first < drawnCount && first < count && drawn[first] == glyphs[first])
+        first++;
+    if (first == count && drawnCount == count)
+      return;
+    if (!hud.fits)
+      first = 0;
+    x = AsteroidsHud.PAD + labelWidth;
+    for (i = 0; i < first; i++)
+      x += hud.advances[drawn[i]];
+    g.setComposite(AlphaComposite.Clear);
+    if (first == 0 && (drawnCount < 0 || !hud.fits)) {
+      g.fillRect(0, 0, image.getWidth(), image.getHeight());
+      g.setComposite(AlphaComposite.SrcOver);
+      g.drawString(label, AsteroidsHud.PAD, hud.ascent);
+    }
+    else {
+      g.fillRect(x, 0, image.getWidth() - x, image.getHeight());
+      g.setComposite(AlphaComposite.SrcOver);
+    }
+
+    // Copy in the changed glyphs from the atlas, and the suffix after them.
+
+    for (i = first; i < count; i++) {
+      hud.drawDigit(g, glyphs[i], x);
+      x += hud.advances[glyphs[i]];
+      drawn[i] = glyphs[i];
+    }
+    if (suffix != null)
+      g.drawImage(hud.text(suffix), x - AsteroidsHud.PAD, 0, null);
+    drawnCount = count;
+  }
+}
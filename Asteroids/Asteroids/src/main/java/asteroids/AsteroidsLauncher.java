@@ -0,0 +1,277 @@
+/************************************************************************************************
+
+AsteroidsLauncher.java
+
+  Usage:
+
+  java -jar asteroids.jar [options] [name=value ...]
+  java @asteroids.args [options] [name=value ...]
+  java @startup.args -startup [-target ms]
+
+  -headless     Play without a window, even if there is a display: the aim pilot plays, and
+                its frames are drawn into an image no one sees. Without a display this is
+                what happens anyway.
+  -seconds n    How long to play headless (default 10).
+  -startup      Quit as soon as the first frame is drawn, reporting how long after the JVM
+                started that was.
+  -target ms    With -startup, the exit status is 1 if the first frame took longer than this.
+
+  Runs the game as a program rather than an applet, which modern JVMs can no longer show. The
+  applet is put in a window of its own, which stands in for the page and the browser: it gives
+  the applet its parameters (name=value, as in the applet tag, with width and height setting
+  the size of the window, default 640 by 480) and a document base of the current directory,
+  and stops it when the window is closed.
+
+  The jar built by Maven starts here. asteroids.args runs it with a shared class archive, so
+  the classes the game starts with are loaded from a ready made image of them instead of being
+  found, read and checked one by one. The archive is made by the first run on a JVM that can
+  make it (JDK 19 and later) and used by every run after, until the jar changes. startup.args
+  is the same with the quick compiler only, for timing the first frame, not for playing.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.applet.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.net.*;
+import java.util.*;
+
+public class AsteroidsLauncher implements AppletStub {
+
+  // Constants
+
+  static final int WIDTH  = 640;    // Window size if none is given.
+  static final int HEIGHT = 480;
+
+  // Fields:
+
+  Map<String, String> params;
+  URL                 base;
+  boolean             active;
+
+  Frame     frame;
+  Asteroids applet;
+
+  // Constructors:
+
+  public AsteroidsLauncher(Map<String, String> params) throws MalformedURLException {
+
+    this.params = params;
+    base = new File("").getAbsoluteFile().toURI().toURL();
+  }
+
+  // Methods:
+
+  public static void main(String[] args) throws Exception {
+
+    AsteroidsLauncher launcher;
+    Map<String, String> params;
+    boolean headless, startup;
+    long target, time;
+    int seconds, i;
+
+    headless = GraphicsEnvironment.isHeadless();
+    startup = false;
+    seconds = 10;
+    target = 0;
+    params = new HashMap<String, String>();
+    for (i = 0; i < args.length; i++)
+      if (args[i].equals("-headless"))
+        headless = true;
+      else if (args[i].equals("-startup"))
+        startup = true;
+      else if (args[i].equals("-seconds") && i + 1 < args.length)
+        seconds = Integer.parseInt(args[++i]);
+      else if (args[i].equals("-target") && i + 1 < args.length)
+        target = Long.parseLong(args[++i]);
+      else if (args[i].indexOf('=') > 0)
+        params.put(args[i].substring(0, args[i].indexOf('=')).toLowerCase(), args[i].substring(args[i].indexOf('=') + 1));
+      else
+        throw new IllegalArgumentException("Unknown option: " + args[i]);
+
+    launcher = new AsteroidsLauncher(params);
+    if (headless)
+      time = launcher.playHeadless(startup ? 0 : seconds);
+    else
+      time = launcher.play(startup);
+
+    // Report the start up time and check it against the target.
+
+    if (startup) {
+      System.out.println("Startup:    first frame " + time + " ms after JVM start"
+                         + (target > 0 ? " (target " + target + " ms)" : ""));
+      System.exit(target > 0 && time > target ? 1 : 0);
+    }
+  }
+
+  public long play(boolean startup) throws InterruptedException {
+
+    long time;
+
+    // Put the applet in a window and start it, the way a browser would.
+
+    applet = new Asteroids();
+    applet.setStub(this);
+    frame = new Frame("Asteroids");
+    frame.add(applet);
+    frame.addWindowListener(new WindowAdapter() {
+      public void windowClosing(WindowEvent e) {
+        close();
+      }
+    });
+    applet.setPreferredSize(new Dimension(getIntParameter("width", WIDTH), getIntParameter("height", HEIGHT)));
+    frame.pack();
+    frame.setResizable(false);
+    frame.setLocationRelativeTo(null);
+    applet.init();
+    frame.validate();
+    frame.setVisible(true);
+    active = true;
+    applet.start();
+    if (applet.canvas != null)
+      applet.canvas.requestFocus();
+    else
+      applet.requestFocus();
+    if (!startup)
+      return 0;
+
+    // Wait for the first frame, and work back from now to when it was drawn.
+
+    while (applet.firstFrameTime == 0)
+      Thread.sleep(1);
+    time = ManagementFactory.getRuntimeMXBean().getUptime() - (System.nanoTime() - applet.firstFrameTime) / 1000000;
+    close();
+    return time;
+  }
+
+  public void close() {
+
+    // Stop the applet and let the window go. The game loop finishes up on its own (writing out
+    // any recording or profile), after which nothing is left to keep the program running.
+
+    active = false;
+    applet.stop();
+    applet.destroy();
+    frame.dispose();
+  }
+
+  public long playHeadless(int seconds) throws InterruptedException {
+
+    AsteroidsWorld world;
+    AsteroidsRenderer renderer;
+    AsteroidsClock clock;
+    AsteroidsPilot pilot;
+    BufferedImage image;
+    Graphics g;
+    long firstFrame, endTime;
+    int n, w, h;
+
+    // Run the applet's loop with the aim pilot at the controls and an image for a screen. There
+    // is no sound without somewhere to play it.
+
+    w = getIntParameter("width", WIDTH);
+    h = getIntParameter("height", HEIGHT);
+    world = new AsteroidsWorld(w, h,
+                               getIntParameter("shots", AsteroidsWorld.MAX_SHOTS),
+                               getIntParameter("rocks", AsteroidsWorld.MAX_ROCKS),
+                               getIntParameter("scrap", AsteroidsWorld.MAX_SCRAP),
+                               getLongParameter("seed", AsteroidsRandom.newSeed()));
+    renderer = new AsteroidsRenderer(world);
+    renderer.loaded = true;
+    if ("dirty".equals(getParameter("redraw")))
+      renderer.dirty = new AsteroidsDirty();
+    if (getParameter("raster") != null)
+      renderer.raster = new AsteroidsRaster(getIntParameter("raster", 0));
+    clock = new AsteroidsClock(getIntParameter("tickrate", AsteroidsClock.TICK_RATE),
+                               getIntParameter("framerate", AsteroidsClock.FRAME_RATE));
+    pilot = new AsteroidsAimPilot();
+    image = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+    g = image.getGraphics();
+    if (renderer.raster != null)
+      renderer.raster.setTarget(image);
+    firstFrame = 0;
+    clock.start(System.nanoTime());
+    endTime = System.nanoTime() + seconds * 1000000000L;
+    do {
+      n = clock.frame(System.nanoTime(), true);
+      while (n-- > 0) {
+        if (!world.playing)
+          world.initGame();
+        world.step(pilot.input(world));
+      }
+      renderer.alpha = clock.alpha();
+      renderer.paint(g, w, h);
+      if (firstFrame == 0)
+        firstFrame = System.nanoTime();
+      AsteroidsClock.sleep(clock.sleepTime(System.nanoTime()));
+    } while (System.nanoTime() < endTime);
+    g.dispose();
+    if (renderer.raster != null)
+      renderer.raster.shutdown();
+    if (seconds > 0) {
+      System.out.println(clock.report());
+      System.out.println("Score:      " + world.score);
+    }
+    return ManagementFactory.getRuntimeMXBean().getUptime() - (System.nanoTime() - firstFrame) / 1000000;
+  }
+
+  int getIntParameter(String name, int value) {
+
+    String s;
+
+    s = getParameter(name);
+    if (s != null)
+      try {
+        value = Integer.parseInt(s.trim());
+      }
+      catch (NumberFormatException e) {}
+    return value;
+  }
+
+  long getLongParameter(String name, long value) {
+
+    String s;
+
+    s = getParameter(name);
+    if (s != null)
+      try {
+        value = Long.parseLong(s.trim());
+      }
+      catch (NumberFormatException e) {}
+    return value;
+  }
+
+  // AppletStub methods.
+
+  public boolean isActive() {
+
+    return active;
+  }
+
+  public URL getDocumentBase() {
+
+    return base;
+  }
+
+  public URL getCodeBase() {
+
+    return base;
+  }
+
+  public String getParameter(String name) {
+
+    return params.get(name.toLowerCase());
+  }
+
+  public AppletContext getAppletContext() {
+
+    return null;
+  }
+
+  public void appletResize(int width, int height) {}
+}
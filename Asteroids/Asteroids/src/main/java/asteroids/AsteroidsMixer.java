@@ -0,0 +1,453 @@
+/************************************************************************************************
+
+AsteroidsMixer.java
+
+  Plays the game's sounds by mixing them in software onto a single audio line, in place of one
+  AudioClip per sound. Each clip is decoded from its .au file once, into 16 bit samples at the
+  mixer's rate, and any number of them can sound at once, up to a fixed number of voices. A
+  clip played again while it is still sounding gets another voice instead of being cut off,
+  up to a limit per clip, after which its oldest voice is taken over.
+
+  The game never waits on audio. play(), loop() and stop() only put an event on a queue, a
+  ring of preallocated slots written by the game thread and read by the mixer's own thread
+  without locks; if the ring is ever full the event is dropped. The mixer thread takes the
+  events at the start of each period (a few milliseconds of sound), mixes the period and writes
+  it to the line, which is the only place it blocks. If no audio line can be had (no sound
+  hardware, or headless) the mixer still runs, mixing into nothing at the same pace.
+
+  Clips can be handed to the mixer at any time, while it runs. Until a clip is there, playing
+  it does nothing, but a loop asked for before then starts as soon as its clip arrives.
+
+  For each event the mixer measures how long it will be from the event being posted to its
+  first sample being heard: the time spent in the queue plus the sound already waiting in the
+  line ahead of it.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import javax.sound.sampled.*;
+
+class AsteroidsMixer implements Runnable {
+
+  // Constants
+
+  static final int RATE   = 22050;       // Samples per second.
+  static final int PERIOD = 256;         // Samples mixed at a time (11.6 ms).
+  static final int LINE_PERIODS = 3;     // Periods the line holds ahead of the speaker.
+  static final int VOICES = 8;           // Sounds that can play at once, in all and of any one
+  static final int VOICES_PER_CLIP = 3;  // clip.
+  static final int QUEUE  = 256;         // Events that can wait for the mixer (a power of 2).
+
+  static final int PLAY     = 0;         // Events.
+  static final int LOOP     = 1;
+  static final int STOP     = 2;
+  static final int STOP_ALL = 3;
+
+  // Fields:
+
+  volatile short[][] clips;    // Decoded clips, replaced whole each time one is added.
+  boolean[]          looping;  // Clips asked to loop, which start when their clip is ready.
+  short[][]          seen;     // Clips as the mixer thread last saw them.
+
+  // Event queue. Only the game thread writes tail and only the mixer thread writes head.
+
+  int[]         events;
+  long[]        posted;        // When each event was posted.
+  volatile long head;
+  volatile long tail;
+  long          dropped;       // Events lost to a full queue.
+
+  // Voices, touched only by the mixer thread.
+
+  int[]     voiceClip;         // Clip a voice is playing, or -1 if it is free,
+  int[]     voicePos;          // how far it has got,
+  boolean[] voiceLoop;         // whether it starts over at the end,
+  long[]    voiceStart;        // and when it started, in periods.
+  long      periods;
+  long      stolen;            // Voices taken over from a sound still playing.
+
+  int[]  mix;                  // Mixing buffers.
+  byte[] out;
+
+  SourceDataLine     line;     // The line, or null to mix into nothing.
+  Thread             thread;
+  volatile boolean   running;
+
+  AsteroidsHistogram latency;  // Nanoseconds from an event being posted to it being heard.
+
+  // Constructors:
+
+  public AsteroidsMixer(int clips) {
+
+    int i;
+
+    this.clips = new short[clips][];
+    looping = new boolean[clips];
+    seen = this.clips;
+    events = new int[QUEUE];
+    posted = new long[QUEUE];
+    voiceClip = new int[VOICES];
+    voicePos = new int[VOICES];
+    voiceLoop = new boolean[VOICES];
+    voiceStart = new long[VOICES];
+    for (i = 0; i < VOICES; i++)
+      voiceClip[i] = -1;
+    mix = new int[PERIOD];
+    out = new byte[PERIOD * 2];
+    latency = new AsteroidsHistogram();
+  }
+
+  // Methods:
+
+  public synchronized void setClip(int n, short[] samples) {
+
+    short[][] c;
+
+    // Publish a copy of the clip array with the new clip in it, so the mixer thread always
+    // sees a complete clip.
+
+    c = clips.clone();
+    c[n] = samples;
+    clips = c;
+  }
+
+  public boolean isReady(int n) {
+
+    return clips[n] != null;
+  }
+
+  public void play(int n) {
+
+    post(PLAY << 8 | n);
+  }
+
+  public void loop(int n) {
+
+    post(LOOP << 8 | n);
+  }
+
+  public void stop(int n) {
+
+    post(STOP << 8 | n);
+  }
+
+  public void stopAll() {
+
+    post(STOP_ALL << 8);
+  }
+
+  boolean post(int event) {
+
+    long t;
+
+    // Add an event to the queue, from the one thread that posts events. Never waits: if the
+    // mixer has fallen a whole queue behind, the event is dropped.
+
+    t = tail;
+    if (t - head >= QUEUE) {
+      dropped++;
+      return false;
+    }
+    events[(int) t & (QUEUE - 1)] = event;
+    posted[(int) t & (QUEUE - 1)] = System.nanoTime();
+    tail = t + 1;
+    return true;
+  }
+
+  public synchronized void start() {
+
+    AudioFormat format;
+
+    // Open the line, if there is one to be had, and start the mixer thread.
+
+    if (thread != null)
+      return;
+    format = new AudioFormat(RATE, 16, 1, true, false);
+    try {
+      line = AudioSystem.getSourceDataLine(format);
+      line.open(format, LINE_PERIODS * PERIOD * 2);
+      line.start();
+    }
+    catch (Exception e) {
+      System.out.println("No audio line, mixing silently: " + e);
+      line = null;
+    }
+    running = true;
+    thread = new Thread(this, "Asteroids mixer");
+    thread.setDaemon(true);
+    thread.setPriority(Thread.MAX_PRIORITY);
+    thread.start();
+  }
+
+  public synchronized void stop() {
+
+    // Stop the mixer thread and close the line. Events still queued are kept for the next
+    // start().
+
+    if (thread == null)
+      return;
+    running = false;
+    try {
+      thread.join();
+    }
+    catch (InterruptedException e) {}
+    thread = null;
+    if (line != null) {
+      line.stop();
+      line.close();
+      line = null;
+    }
+  }
+
+  public void run() {
+
+    long next, wait;
+
+    next = System.nanoTime();
+    while (running) {
+      take();
+      mix();
+      if (line != null)
+        line.write(out, 0, out.length);
+      else {
+
+        // With no line to hold things up, keep to the pace of the sound that isn't heard.
+
+        next += PERIOD * 1000000000L / RATE;
+        wait = next - System.nanoTime();
+        if (wait > 0)
+          try {
+            Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+          }
+          catch (InterruptedException e) {}
+        else
+          next = System.nanoTime();
+      }
+    }
+  }
+
+  void take() {
+
+    long h, t, now, ahead;
+    int e, n;
+
+    // Start any loop that was asked for before its clip was loaded, now that it is.
+
+    if (seen != clips) {
+      seen = clips;
+      for (n = 0; n < seen.length; n++)
+        if (looping[n])
+          sound(n, true);
+    }
+
+    // Act on every event posted so far. Each will be heard after the sound already in the line.
+
+    h = head;
+    t = tail;
+    if (h == t)
+      return;
+    now = System.nanoTime();
+    ahead = line != null ? (line.getBufferSize() - line.available()) / 2 * 1000000000L / RATE : 0;
+    for (; h < t; h++) {
+      e = events[(int) h & (QUEUE - 1)];
+      latency.record(now - posted[(int) h & (QUEUE - 1)] + ahead);
+      switch (e >> 8) {
+        case PLAY:     sound(e & 0xff, false); break;
+        case LOOP:     sound(e & 0xff, true);  break;
+        case STOP:     silence(e & 0xff);      break;
+        case STOP_ALL: silence(-1);            break;
+      }
+    }
+    head = h;
+  }
+
+  void sound(int n, boolean loop) {
+
+    int i, v, same, oldest;
+
+    if (n >= clips.length)
+      return;
+    if (loop)
+      looping[n] = true;
+    if (clips[n] == null)
+      return;
+
+    // A looping clip only ever has the one voice.
+
+    same = 0;
+    oldest = -1;
+    for (i = 0; i < VOICES; i++)
+      if (voiceClip[i] == n) {
+        if (loop && voiceLoop[i])
+          return;
+        same++;
+        if (oldest < 0 || voiceStart[i] < voiceStart[oldest])
+          oldest = i;
+      }
+
+    // Use a free voice, unless the clip has all it may have, in which case its oldest voice
+    // starts over. With no free voice the oldest sound that isn't a loop is cut off.
+
+    v = -1;
+    if (same >= VOICES_PER_CLIP)
+      v = oldest;
+    for (i = 0; i < VOICES && v < 0; i++)
+      if (voiceClip[i] < 0)
+        v = i;
+    if (v < 0)
+      for (i = 0; i < VOICES; i++)
+        if (!voiceLoop[i] && (v < 0 || voiceStart[i] < voiceStart[v]))
+          v = i;
+    if (v < 0)
+      return;
+    if (voiceClip[v] >= 0)
+      stolen++;
+    voiceClip[v] = n;
+    voicePos[v] = 0;
+    voiceLoop[v] = loop;
+    voiceStart[v] = periods;
+  }
+
+  void silence(int n) {
+
+    int i;
+
+    for (i = 0; i < VOICES; i++)
+      if (n < 0 || voiceClip[i] == n)
+        voiceClip[i] = -1;
+    for (i = 0; i < looping.length; i++)
+      if (n < 0 || i == n)
+        looping[i] = false;
+  }
+
+  void mix() {
+
+    short[][] c;
+    short[] s;
+    int i, j, v, p, n;
+
+    // Add up every voice sounding for one period, then clip and pack the total as little
+    // endian 16 bit samples. A clip with no samples (decode() never makes one) just stops its
+    // voice, where looping it would never get through the period.
+
+    c = clips;
+    for (i = 0; i < PERIOD; i++)
+      mix[i] = 0;
+    for (v = 0; v < VOICES; v++) {
+      if (voiceClip[v] < 0)
+        continue;
+      s = c[voiceClip[v]];
+      if (s.length == 0) {
+        voiceClip[v] = -1;
+        continue;
+      }
+      p = voicePos[v];
+      for (i = 0; i < PERIOD; ) {
+        n = Math.min(PERIOD - i, s.length - p);
+        for (j = 0; j < n; j++)
+          mix[i + j] += s[p + j];
+        i += n;
+        p += n;
+        if (p >= s.length) {
+          if (!voiceLoop[v]) {
+            voiceClip[v] = -1;
+            break;
+          }
+          p = 0;
+        }
+      }
+      voicePos[v] = p;
+    }
+    for (i = 0; i < PERIOD; i++) {
+      v = Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, mix[i]));
+      out[2 * i] = (byte) v;
+      out[2 * i + 1] = (byte) (v >> 8);
+    }
+    periods++;
+  }
+
+  public String report() {
+
+    return "Mixer: " + latency.count + " events, " + dropped + " dropped, " + stolen + " voices taken over; latency "
+         + AsteroidsProfiler.tenths(latency.mean() / 1000) + " ms mean, "
+         + AsteroidsProfiler.tenths(latency.percentile(99) / 1000) + " ms p99, "
+         + AsteroidsProfiler.tenths(latency.max / 1000) + " ms max" + (line == null && thread != null ? " (silent)" : "");
+  }
+
+  static short[] decode(ByteBuffer au) throws IOException {
+
+    int offset, size, encoding, rate, channels, n, i;
+    short[] pcm;
+
+    // Read a Sun .au file: a header giving where the samples start and how they are stored,
+    // then the samples, big endian. Mu-law and 8 and 16 bit linear mono are understood. A file
+    // with no samples is refused, since there would be nothing to play or loop.
+
+    if (au.remaining() < 24 || au.getInt(au.position()) != 0x2e736e64)
+      throw new IOException("Not an .au file");
+    offset = au.getInt(au.position() + 4);
+    size = au.getInt(au.position() + 8);
+    encoding = au.getInt(au.position() + 12);
+    rate = au.getInt(au.position() + 16);
+    channels = au.getInt(au.position() + 20);
+    if (channels != 1 || rate <= 0 || (encoding < 1 || encoding > 3))
+      throw new IOException("Unsupported .au format " + encoding + ", " + channels + " channels");
+    if (offset < 24 || offset > au.remaining())
+      throw new IOException("Bad .au header");
+    n = au.remaining() - offset;
+    if (size >= 0 && size < n)
+      n = size;
+    if (encoding == 3)
+      n /= 2;
+    pcm = new short[Math.max(0, n)];
+    for (i = 0; i < pcm.length; i++)
+      if (encoding == 1)
+        pcm[i] = ulaw(au.get(au.position() + offset + i));
+      else if (encoding == 2)
+        pcm[i] = (short) (au.get(au.position() + offset + i) << 8);
+      else
+        pcm[i] = au.getShort(au.position() + offset + 2 * i);
+    pcm = resample(pcm, rate, RATE);
+    if (pcm.length == 0)
+      throw new IOException("No samples in .au file");
+    return pcm;
+  }
+
+  static short ulaw(byte b) {
+
+    int u, t;
+
+    // G.711 mu-law expansion.
+
+    u = ~b & 0xff;
+    t = ((u & 0x0f) << 3) + 0x84;
+    t <<= (u & 0x70) >> 4;
+    return (short) ((u & 0x80) != 0 ? 0x84 - t : t - 0x84);
+  }
+
+  static short[] resample(short[] in, int from, int to) {
+
+    short[] out;
+    double step, x;
+    int i, j;
+
+    // Linear interpolation, done once when a clip is loaded.
+
+    if (from == to || in.length == 0)
+      return in;
+    out = new short[(int) ((long) in.length * to / from)];
+    step = (double) from / to;
+    for (i = 0; i < out.length; i++) {
+      x = i * step;
+      j = (int) x;
+      if (j + 1 < in.length)
+        out[i] = (short) Math.round(in[j] + (in[j + 1] - in[j]) * (x - j));
+      else
+        out[i] = in[in.length - 1];
+    }
+    return out;
+  }
+}
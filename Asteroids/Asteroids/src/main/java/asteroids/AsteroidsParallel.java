@@ -0,0 +1,133 @@
+/************************************************************************************************
+
+AsteroidsParallel.java
+
+  Threads for an AsteroidsWorld too big for one core, with tens of thousands of asteroids,
+  photons and debris. Each tick, the part of updating the sprites that only looks at each
+  sprite on its own is shared out among the threads of a fork-join pool: moving and rendering
+  them and, for an asteroid, finding whether it touches a photon or the ship, which don't move
+  while the asteroids are checked. Everything that changes the game (using up photons, breaking
+  up asteroids, scoring, expiring debris) is left to the thread running the tick, one sprite at
+  a time in the same order as ever, so a game plays out bit for bit the same as it does without
+  threads (see AsteroidsWorld.updateAsteroids()).
+
+  The live sprites of a pool are cut into runs of CHUNK, and each thread takes the next run not
+  yet done until none are left. Fewer than MIN_SPRITES are done on the calling thread, where
+  they take less time than waking the pool would.
+
+  An AsteroidsParallel serves one world, and one tick at a time.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AsteroidsParallel {
+
+  // Constants
+
+  static final int CHUNK       = 128;           // Sprites a thread takes at a time.
+  static final int MIN_SPRITES = 2 * CHUNK;     // Fewest sprites worth sharing out.
+
+  // Fields:
+
+  int               threads;
+  ForkJoinPool      pool;         // Threads sharing the work (null with only one), the work
+  AsteroidsChunks[] workers;      // each takes on, the task starting them all and the next
+  RecursiveAction   all;          // run to be done.
+  AtomicInteger     next = new AtomicInteger();
+
+  AsteroidsWorld world;           // World, job and number of sprites being worked on.
+  int            job;
+  int            count;
+
+  // Constructors:
+
+  public AsteroidsParallel(int threads) {
+
+    int i;
+
+    // Use a thread for each processor unless told how many.
+
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    workers = new AsteroidsChunks[this.threads];
+    for (i = 0; i < workers.length; i++)
+      workers[i] = new AsteroidsChunks(this);
+    if (this.threads > 1) {
+      pool = new ForkJoinPool(this.threads);
+      all = new RecursiveAction() {
+        protected void compute() {
+          invokeAll(workers);
+        }
+      };
+    }
+  }
+
+  // Methods:
+
+  public void run(AsteroidsWorld world, int job, int count) {
+
+    int i;
+
+    // Do the job (see AsteroidsWorld.move()) for the first count live sprites of its pool, and
+    // return once every one is done.
+
+    if (pool == null || count < MIN_SPRITES) {
+      world.move(job, 0, count, world.candidates);
+      return;
+    }
+    this.world = world;
+    this.job = job;
+    this.count = count;
+    next.set(0);
+    for (i = 0; i < workers.length; i++)
+      workers[i].reinitialize();
+    all.reinitialize();
+    try {
+      pool.invoke(all);
+    }
+    finally {
+      this.world = null;
+    }
+  }
+
+  public void shutdown() {
+
+    if (pool != null)
+      pool.shutdown();
+  }
+}
+
+/************************************************************************************************
+  The AsteroidsChunks class is one of the threads' share of an AsteroidsParallel job: it takes
+  runs of sprites until there are none left, and keeps the room it needs for collision queries.
+************************************************************************************************/
+
+class AsteroidsChunks extends RecursiveAction {
+
+  // Fields:
+
+  AsteroidsParallel parallel;
+  AsteroidsQuery    candidates = new AsteroidsQuery();
+
+  // Constructors:
+
+  public AsteroidsChunks(AsteroidsParallel parallel) {
+
+    this.parallel = parallel;
+  }
+
+  // Methods:
+
+  protected void compute() {
+
+    AsteroidsParallel p = parallel;
+    int k;
+
+    while ((k = p.next.getAndIncrement() * AsteroidsParallel.CHUNK) < p.count)
+      p.world.move(p.job, k, Math.min(k + AsteroidsParallel.CHUNK, p.count), candidates);
+  }
+}
@@ -0,0 +1,122 @@
+/************************************************************************************************
+
+AsteroidsPilot.java
+
+  A scripted player. Before each tick a pilot looks at the world and returns the input bits to
+  step it with. A pilot may keep its own state between ticks, so each game gets its own pilot.
+
+  Two pilots are built in:
+
+  spin - The pilot the benchmark uses: keeps turning, fires every few ticks and gives the
+         thrusters an occasional burst, without looking at the world at all.
+  aim  - Turns toward the nearest target, fires when it is lined up and jumps into hyperspace
+         when something gets too close.
+
+************************************************************************************************/
+
+package asteroids;
+
+interface AsteroidsPilot {
+
+  int input(AsteroidsWorld world);
+}
+
+/************************************************************************************************
+  The AsteroidsSpinPilot class flies the benchmark's script.
+************************************************************************************************/
+
+class AsteroidsSpinPilot implements AsteroidsPilot {
+
+  public int input(AsteroidsWorld world) {
+
+    return AsteroidsBenchmark.pilot(world.ticks);
+  }
+}
+
+/************************************************************************************************
+  The AsteroidsAimPilot class shoots at whatever is nearest.
+************************************************************************************************/
+
+class AsteroidsAimPilot implements AsteroidsPilot {
+
+  // Constants
+
+  static final double TURN  = Math.PI / 16.0;    // Angle the ship turns in one tick.
+  static final double PANIC = 40;                // Distance at which the pilot jumps away.
+
+  // Fields:
+
+  double targetX, targetY, targetDistance;
+
+  // Methods:
+
+  public int input(AsteroidsWorld world) {
+
+    AsteroidsSprite ship;
+    double angle, diff;
+    int input, i, k;
+
+    ship = world.ship;
+    if (!ship.isActive())
+      return 0;
+
+    // Find the nearest asteroid, saucer or missle, allowing for the playfield wrapping round.
+
+    targetDistance = Double.MAX_VALUE;
+    for (k = 0; k < world.asteroidPool.count; k++) {
+      i = world.asteroidPool.live[k];
+      target(world, world.asteroids[i]);
+    }
+    if (world.ufo.isActive())
+      target(world, world.ufo);
+    if (world.missle.isActive())
+      target(world, world.missle);
+    if (targetDistance == Double.MAX_VALUE)
+      return 0;
+    if (targetDistance < PANIC && world.hyperCounter <= 0)
+      return AsteroidsWorld.HYPER;
+
+    // Turn toward it, the short way round. The ship heads along (-sin, -cos) of its angle in
+    // playfield coordinates, which is also the way its photons go.
+
+    angle = Math.atan2(-targetX, -targetY);
+    diff = angle - ship.getAngle();
+    while (diff > Math.PI)
+      diff -= 2 * Math.PI;
+    while (diff < -Math.PI)
+      diff += 2 * Math.PI;
+    input = 0;
+    if (diff > TURN / 2)
+      input |= AsteroidsWorld.LEFT;
+    else if (diff < -TURN / 2)
+      input |= AsteroidsWorld.RIGHT;
+
+    // Fire on every other tick while lined up, so a photon is always ready.
+
+    if (Math.abs(diff) < TURN && world.ticks % 2 == 0)
+      input |= AsteroidsWorld.FIRE;
+    return input;
+  }
+
+  void target(AsteroidsWorld world, AsteroidsSprite s) {
+
+    double dx, dy, d;
+
+    dx = s.getX() - world.ship.getX();
+    dy = s.getY() - world.ship.getY();
+    if (dx > world.width / 2)
+      dx -= world.width;
+    else if (dx < -world.width / 2)
+      dx += world.width;
+    if (dy > world.height / 2)
+      dy -= world.height;
+    else if (dy < -world.height / 2)
+      dy += world.height;
+    d = Math.sqrt(dx * dx + dy * dy);
+    if (d < targetDistance) {
+      targetX = dx;
+      targetY = dy;
+      targetDistance = d;
+    }
+  }
+}
@@ -0,0 +1,166 @@
+/************************************************************************************************
+
+AsteroidsPool.java
+
+  A fixed set of sprites of one kind (photons, asteroids or explosion debris) with a dense list
+  of the ones in use. Spawning and despawning take constant time, and loops over the live list
+  only cost as much as the number of sprites actually in play, however large the pool is.
+
+  The live list is kept packed by moving the last entry into the hole a despawned sprite leaves,
+  so a loop that may despawn the sprite it is looking at should only advance when it didn't:
+
+    for (k = 0; k < pool.count; ) {
+      i = pool.live[k];
+      ...
+      if (still alive)
+        k++;
+    }
+
+  Sprites spawned during such a loop are added to the end of the list and are reached by the
+  same loop.
+
+  The live sprites are also linked oldest to newest, in the order they were spawned, so a full
+  pool can hand back its oldest sprite in constant time. Every sprite in a pool is given the
+  same life when it is spawned, so the oldest is the one closest to running out.
+
+************************************************************************************************/
+
+package asteroids;
+
+class AsteroidsPool {
+
+  // Fields:
+
+  AsteroidsBodies   bodies;    // Shape and motion of every sprite in the pool.
+  AsteroidsSprite[] sprites;   // All sprites in the pool, indexed by slot.
+  int[] counter;               // Time counter for each slot, for sprites with a limited life.
+
+  int[] live;                  // Slots in use, packed at the start of the array.
+  int   count;                 // Number of slots in use.
+  int[] liveIndex;             // Position of each slot in live, or -1 if it is free.
+  int[] free;                  // Stack of free slots.
+  int   freeCount;
+  int[] newer;                 // Next slot spawned after each live slot, or -1 for the newest.
+  int[] older;                 // Slot spawned before each live slot, or -1 for the oldest.
+  int   oldest, newest;        // Ends of that list, or -1 if nothing is live.
+
+  // Constructors:
+
+  public AsteroidsPool(int capacity, int stride, int width, int height) {
+
+    int i;
+
+    bodies = new AsteroidsBodies(capacity, stride, width, height);
+    sprites = new AsteroidsSprite[capacity];
+    counter = new int[capacity];
+    live = new int[capacity];
+    liveIndex = new int[capacity];
+    free = new int[capacity];
+    newer = new int[capacity];
+    older = new int[capacity];
+    for (i = 0; i < capacity; i++)
+      sprites[i] = new AsteroidsSprite(bodies, i);
+    clear();
+  }
+
+  // Methods:
+
+  public int capacity() {
+
+    return sprites.length;
+  }
+
+  public void clear() {
+
+    int i;
+
+    // Free every slot. The stack is filled so the lowest slots are handed out first.
+
+    for (i = 0; i < sprites.length; i++) {
+      bodies.active[i] = false;
+      counter[i] = 0;
+      liveIndex[i] = -1;
+      free[i] = sprites.length - 1 - i;
+    }
+    count = 0;
+    freeCount = sprites.length;
+    oldest = newest = -1;
+  }
+
+  public int spawn() {
+
+    int i;
+
+    // Take a free slot and mark its sprite active. Returns -1 if the pool is full.
+
+    if (freeCount == 0)
+      return -1;
+    i = free[--freeCount];
+    liveIndex[i] = count;
+    live[count++] = i;
+    link(i);
+    bodies.active[i] = true;
+    return i;
+  }
+
+  public int recycle() {
+
+    int i;
+
+    // Take a free slot if there is one, otherwise reuse the oldest live sprite, which becomes
+    // the newest. Returns -1 only for a pool with no slots at all.
+
+    i = spawn();
+    if (i >= 0 || count == 0)
+      return i;
+    i = oldest;
+    unlink(i);
+    link(i);
+    return i;
+  }
+
+  public void despawn(int i) {
+
+    int k, last;
+
+    // Mark the sprite inactive and fill its place in the live list with the last entry.
+
+    k = liveIndex[i];
+    if (k < 0)
+      return;
+    last = live[--count];
+    live[k] = last;
+    liveIndex[last] = k;
+    liveIndex[i] = -1;
+    unlink(i);
+    free[freeCount++] = i;
+    bodies.active[i] = false;
+  }
+
+  void link(int i) {
+
+    // Add a slot to the newest end of the age list.
+
+    older[i] = newest;
+    newer[i] = -1;
+    if (newest >= 0)
+      newer[newest] = i;
+    else
+      oldest = i;
+    newest = i;
+  }
+
+  void unlink(int i) {
+
+    // Take a slot out of the age list.
+
+    if (older[i] >= 0)
+      newer[older[i]] = newer[i];
+    else
+      oldest = newer[i];
+    if (newer[i] >= 0)
+      older[newer[i]] = older[i];
+    else
+      newest = older[i];
+  }
+}
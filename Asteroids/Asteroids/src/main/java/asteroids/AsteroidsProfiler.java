@@ -0,0 +1,331 @@
+/************************************************************************************************
+
+AsteroidsProfiler.java
+
+  Times every part of a game tick, and the painting of each frame, while it is attached to an
+  AsteroidsWorld. Each phase's times go into an AsteroidsHistogram, along with each tick's
+  collision tests, live sprites and bytes allocated, so a rare slow tick shows up in the high
+  percentiles rather than vanishing into an average. The ten slowest ticks are also kept with
+  the time taken by each of their phases.
+
+  A tick that takes longer than the tick budget (the time between ticks at the loop's tick
+  rate) is counted as late, and so is a frame whose ticks and painting take longer than the
+  frame budget.
+
+  Nothing is timed while no profiler is attached, and an attached one allocates nothing while
+  recording. Once a second it works out a few lines for the renderer to show over the game, and
+  dump() writes everything it has gathered to a file.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+class AsteroidsProfiler {
+
+  // Constants
+
+  static final int SHIP       = 0;    // Phases, in the order they run.
+  static final int PHOTONS    = 1;
+  static final int UFO        = 2;
+  static final int MISSLE     = 3;
+  static final int ASTEROIDS  = 4;
+  static final int EXPLOSIONS = 5;
+  static final int TICK       = 6;    // All of step(), including the above.
+  static final int PAINT      = 7;
+  static final int FRAME      = 8;    // A frame's ticks and painting together.
+
+  static final String[] PHASES = {
+    "ship", "photons", "ufo", "missle", "asteroids", "explosions", "tick", "paint", "frame"
+  };
+
+  static final int  SLOWEST  = 10;            // Slowest ticks kept.
+  static final long INTERVAL = 1000000000L;   // Nanoseconds between overlay updates.
+
+  // Fields:
+
+  long tickBudget;                  // Time allowed for a tick and for a frame.
+  long frameBudget;
+
+  AsteroidsHistogram[] times;       // Time taken by each phase, in nanoseconds, since the
+  AsteroidsHistogram[] recent;      // profiler was reset and since the overlay was last updated.
+  AsteroidsHistogram   collisions;  // Per tick counts.
+  AsteroidsHistogram   sprites;
+  AsteroidsHistogram   allocations;
+
+  long ticks, lateTicks;
+  long frames, lateFrames;
+
+  long[]   phase;                   // Times for the tick under way.
+  long     tickStart;
+  long     phaseStart;
+  long     startCollisions;
+  long     startBytes;
+
+  long[]   slowTick;                // The slowest ticks: their number, their total time and
+  long[]   slowTime;                // the time of each phase, slowest first.
+  long[][] slowPhases;
+
+  ThreadMXBean threadBean;          // Source of allocation counts, or null if there is none.
+
+  String[] overlay;                 // Lines for the renderer, and when they were worked out.
+  long     overlayTime;
+
+  // Constructors:
+
+  public AsteroidsProfiler(long tickBudget, long frameBudget) {
+
+    ThreadMXBean bean;
+    int i;
+
+    this.tickBudget = tickBudget;
+    this.frameBudget = frameBudget;
+    times = new AsteroidsHistogram[PHASES.length];
+    recent = new AsteroidsHistogram[PHASES.length];
+    for (i = 0; i < PHASES.length; i++) {
+      times[i] = new AsteroidsHistogram();
+      recent[i] = new AsteroidsHistogram();
+    }
+    collisions = new AsteroidsHistogram();
+    sprites = new AsteroidsHistogram();
+    allocations = new AsteroidsHistogram();
+    phase = new long[TICK + 1];
+    slowTick = new long[SLOWEST];
+    slowTime = new long[SLOWEST];
+    slowPhases = new long[SLOWEST][TICK + 1];
+
+    // Allocation counts need the HotSpot extension of the thread bean.
+
+    bean = ManagementFactory.getThreadMXBean();
+    if (bean instanceof com.sun.management.ThreadMXBean && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported())
+      threadBean = bean;
+    reset();
+  }
+
+  // Methods:
+
+  public void reset() {
+
+    int i;
+
+    for (i = 0; i < PHASES.length; i++) {
+      times[i].clear();
+      recent[i].clear();
+    }
+    collisions.clear();
+    sprites.clear();
+    allocations.clear();
+    ticks = lateTicks = 0;
+    frames = lateFrames = 0;
+    for (i = 0; i < SLOWEST; i++)
+      slowTime[i] = -1;
+    overlay = null;
+    overlayTime = System.nanoTime();
+  }
+
+  public void startTick() {
+
+    tickStart = System.nanoTime();
+    startBytes = allocatedBytes();
+  }
+
+  public void update(AsteroidsWorld world) {
+
+    // Run each of the world's updates in turn, timing each one.
+
+    startCollisions = world.collisionTests;
+    phaseStart = System.nanoTime();
+    world.updateShip();
+    lap(SHIP);
+    world.updatePhotons();
+    lap(PHOTONS);
+    world.updateUfo();
+    lap(UFO);
+    world.updateMissle();
+    lap(MISSLE);
+    world.updateAsteroids();
+    lap(ASTEROIDS);
+    world.updateExplosions();
+    lap(EXPLOSIONS);
+  }
+
+  void lap(int p) {
+
+    long now;
+
+    now = System.nanoTime();
+    phase[p] = now - phaseStart;
+    phaseStart = now;
+  }
+
+  public void endTick(AsteroidsWorld world) {
+
+    long bytes;
+    int i;
+
+    phase[TICK] = System.nanoTime() - tickStart;
+    bytes = allocatedBytes();
+    for (i = 0; i <= TICK; i++) {
+      times[i].record(phase[i]);
+      recent[i].record(phase[i]);
+    }
+    collisions.record(world.collisionTests - startCollisions);
+    sprites.record(world.photonPool.count + world.asteroidPool.count + world.explosionPool.count
+                   + (world.ship.isActive() ? 1 : 0) + (world.ufo.isActive() ? 1 : 0)
+                   + (world.missle.isActive() ? 1 : 0));
+    if (bytes >= 0 && startBytes >= 0)
+      allocations.record(bytes - startBytes);
+    if (phase[TICK] > tickBudget)
+      lateTicks++;
+    ticks++;
+
+    // Keep the tick if it is one of the slowest so far.
+
+    if (phase[TICK] > slowTime[SLOWEST - 1]) {
+      for (i = SLOWEST - 1; i > 0 && phase[TICK] > slowTime[i - 1]; i--) {
+        slowTick[i] = slowTick[i - 1];
+        slowTime[i] = slowTime[i - 1];
+        System.arraycopy(slowPhases[i - 1], 0, slowPhases[i], 0, TICK + 1);
+      }
+      slowTick[i] = world.ticks - 1;
+      slowTime[i] = phase[TICK];
+      System.arraycopy(phase, 0, slowPhases[i], 0, TICK + 1);
+    }
+  }
+
+  public void paint(long nanos) {
+
+    times[PAINT].record(nanos);
+    recent[PAINT].record(nanos);
+  }
+
+  public void frame(long nanos) {
+
+    times[FRAME].record(nanos);
+    recent[FRAME].record(nanos);
+    if (nanos > frameBudget)
+      lateFrames++;
+    frames++;
+  }
+
+  long allocatedBytes() {
+
+    // Bytes allocated so far by the thread running the tick, or -1 if the JVM can't tell us.
+
+    if (threadBean == null)
+      return -1;
+    return ((com.sun.management.ThreadMXBean) threadBean).getThreadAllocatedBytes(Thread.currentThread().getId());
+  }
+
+  public String[] overlay() {
+
+    String[] lines;
+    long now;
+    int i;
+
+    // Work out the overlay from the last second's times, at most once a second.
+
+    now = System.nanoTime();
+    if (overlay != null && now - overlayTime < INTERVAL)
+      return overlay;
+    lines = new String[PHASES.length + 4];
+    lines[0] = "Profile (us)" + right("mean", 9) + right("p99", 9) + right("max", 9);
+    for (i = 0; i < PHASES.length; i++) {
+      lines[i + 1] = left(PHASES[i], 12) + right(tenths(recent[i].mean()), 9)
+                   + right(tenths(recent[i].percentile(99)), 9) + right(tenths(recent[i].max), 9);
+      recent[i].clear();
+    }
+    lines[PHASES.length + 1] = "Late: " + lateTicks + " of " + ticks + " ticks, " + lateFrames + " of " + frames + " frames";
+    lines[PHASES.length + 2] = "Per tick: " + AsteroidsHistogram.format(collisions.mean()) + " tests, "
+                             + AsteroidsHistogram.format(sprites.mean()) + " sprites";
+    lines[PHASES.length + 3] = "Allocated: " + AsteroidsHistogram.format(allocations.mean()) + " bytes/tick";
+    overlay = lines;
+    overlayTime = now;
+    return overlay;
+  }
+
+  static String micros(double nanos) {
+
+    return AsteroidsHistogram.format(Math.round(nanos / 10) / 100.0);
+  }
+
+  static String tenths(double nanos) {
+
+    // Microseconds to one decimal place, for the overlay.
+
+    return Double.toString(Math.round(nanos / 100) / 10.0);
+  }
+
+  static String left(String s, int n) {
+
+    while (s.length() < n)
+      s = s + " ";
+    return s;
+  }
+
+  static String right(String s, int n) {
+
+    while (s.length() < n)
+      s = " " + s;
+    return s;
+  }
+
+  public void dump(File file) throws IOException {
+
+    PrintStream out;
+
+    out = new PrintStream(new BufferedOutputStream(new FileOutputStream(file)));
+    try {
+      dump(out);
+    }
+    finally {
+      out.close();
+    }
+  }
+
+  public void summary(PrintStream out) {
+
+    int i, j;
+
+    // Percentiles of every phase and count, then the slowest ticks.
+
+    out.println("Ticks:       " + ticks + ", " + lateTicks + " late (over " + micros(tickBudget) + " us)");
+    out.println("Frames:      " + frames + ", " + lateFrames + " late (over " + micros(frameBudget) + " us)");
+    out.println();
+    for (i = 0; i < PHASES.length; i++)
+      out.println(left(PHASES[i], 12) + " " + times[i].summary(1000) + " us");
+    out.println(left("collisions", 12) + " " + collisions.summary(1) + " per tick");
+    out.println(left("sprites", 12) + " " + sprites.summary(1) + " per tick");
+    out.println(left("allocations", 12) + " " + allocations.summary(1) + " bytes per tick");
+    out.println();
+    out.println("Slowest ticks (us):");
+    out.print(right("tick", 12));
+    for (j = 0; j <= TICK; j++)
+      out.print(" " + right(PHASES[j], 10));
+    out.println();
+    for (i = 0; i < SLOWEST && slowTime[i] >= 0; i++) {
+      out.print(right(Long.toString(slowTick[i]), 12));
+      for (j = 0; j <= TICK; j++)
+        out.print(" " + right(micros(slowPhases[i][j]), 10));
+      out.println();
+    }
+  }
+
+  public void dump(PrintStream out) {
+
+    int i;
+
+    // The summary, then each phase's histogram in full, one bucket to a line: the bucket's
+    // highest value, its count and the running percentage.
+
+    summary(out);
+    for (i = 0; i < PHASES.length; i++) {
+      out.println();
+      out.println(PHASES[i] + " (ns, count, percentile):");
+      times[i].print(out, 1);
+    }
+  }
+}
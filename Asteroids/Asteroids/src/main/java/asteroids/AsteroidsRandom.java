@@ -0,0 +1,89 @@
+/************************************************************************************************
+
+AsteroidsRandom.java
+
+  A small, fast random number generator (SplitMix64) for one game. Each AsteroidsWorld owns one,
+  so games running side by side never touch a shared generator the way every caller of
+  Math.random() does, and a game started from the same seed and given the same input on every
+  tick plays out exactly the same way.
+
+  split() hands out a new generator seeded from this one, for when a game needs to give a
+  helper a stream of its own without disturbing its own sequence.
+
+************************************************************************************************/
+
+package asteroids;
+
+class AsteroidsRandom {
+
+  // Constants
+
+  static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;    // Step between successive states.
+
+  // Fields:
+
+  long seed;      // The seed the generator was started from.
+  long state;
+
+  static long seeds = System.nanoTime();    // Source of seeds for unseeded generators.
+
+  // Constructors:
+
+  public AsteroidsRandom() {
+
+    this(newSeed());
+  }
+
+  public AsteroidsRandom(long seed) {
+
+    setSeed(seed);
+  }
+
+  // Methods:
+
+  public void setSeed(long seed) {
+
+    this.seed = seed;
+    this.state = seed;
+  }
+
+  public long nextLong() {
+
+    long z;
+
+    // Step the state and scramble it. Every value of the state is visited once before the
+    // sequence repeats.
+
+    z = (state += GOLDEN_GAMMA);
+    z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+    z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+    return z ^ (z >>> 31);
+  }
+
+  public double nextDouble() {
+
+    // A value from 0 (inclusive) to 1 (exclusive), a drop in replacement for Math.random().
+
+    return (nextLong() >>> 11) * 0x1.0p-53;
+  }
+
+  public int nextInt(int n) {
+
+    // A value from 0 (inclusive) to n (exclusive).
+
+    return (int) ((nextLong() >>> 33) * n >>> 31);
+  }
+
+  public AsteroidsRandom split() {
+
+    return new AsteroidsRandom(nextLong());
+  }
+
+  static synchronized long newSeed() {
+
+    // Seeds for generators nobody gave a seed to, different on every call and every run.
+
+    seeds += GOLDEN_GAMMA;
+    return seeds ^ System.nanoTime();
+  }
+}
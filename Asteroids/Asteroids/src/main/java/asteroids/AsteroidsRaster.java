@@ -0,0 +1,501 @@
+/************************************************************************************************
+
+AsteroidsRaster.java
+
+  A software rasterizer for AsteroidsRenderer. It draws the stars and sprites straight into the
+  pixels of an int-backed BufferedImage, a tile at a time on several threads, rather than
+  through Java 2D on the one thread painting the frame.
+
+  The renderer hands over each frame's sprites in the order it would draw them: their polygons,
+  shifted along their last move, and which to fill and which to outline in what color. Each of
+  these is binned by its polygon's box into the tiles, TILE pixels square, that it touches. The
+  tiles are then shared out among the threads of a fork-join pool, each thread taking the next
+  tile not yet drawn until none are left, so a crowded part of the screen doesn't hold up the
+  rest. A tile is drawn from start to finish by one thread: the background (black, or the stars
+  on black), then its sprites in order, each clipped to the tile. No two threads ever write the
+  same pixel, so nothing is locked.
+
+  The pixels are the ones Java 2D puts down. An outline is drawn a line at a time the way Java
+  2D's software loops draw a line: Bresenham's algorithm from the first end, stepping along the
+  minor axis on a tie. A polygon is filled the way Java 2D's path filler fills one: in fixed
+  point with PREC bits of fraction, sampling each row where the polygon's whole pixel
+  coordinates fall, stepping each edge's x down the rows by its slope cut to that precision, and
+  filling from the first pixel at or right of where the shape begins to the last one left of
+  where it ends. The one difference is a polygon running off the screen, which Java 2D cuts
+  down to the screen before filling it and the rasterizer does not. About one fill in thirty of
+  those differs by a pixel or two along the edge of the screen.
+
+  With one thread there is no pool, and the tiles are drawn on the thread painting the frame.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class AsteroidsRaster {
+
+  // Constants
+
+  static final int TILE  = 256;                   // Width and height of a tile, in pixels.
+  static final int PREC  = 10;                    // Bits of fraction in fixed point x.
+  static final int ONE   = 1 << PREC;
+  static final int BLACK = Color.black.getRGB();
+  static final int WHITE = Color.white.getRGB();
+
+  // Fields:
+
+  int              threads;
+  ForkJoinPool     pool;          // Threads drawing the tiles (null with only one), the work
+  AsteroidsTiles[] workers;       // each takes on, the task starting them all and the next
+  RecursiveAction  all;           // tile to be drawn.
+  AtomicInteger    next = new AtomicInteger();
+
+  BufferedImage image;            // Image drawn into and its pixels, and whether it is the
+  int[]         pixels;           // raster's own rather than the host's.
+  boolean       own;
+  int           width, height;    // Size of the frame, and of it in tiles.
+  int           cols, rows;
+
+  Point[] stars;                  // Stars in the background (or null), and where each one is
+  int     numStars;               // in the pixels, tile by tile, with where each tile's run of
+  int[]   starPixels;             // them starts.
+  int[]   starStart;
+
+  // Points of every polygon in the frame, with the step in x (in fixed point) for each row down
+  // the edge from each point to the next, and where each polygon's points start, how many there
+  // are and the box around them (inclusive).
+
+  int[] xs = new int[256];
+  int[] ys = new int[256];
+  int[] steps = new int[256];
+  int   points;
+  int[] first = new int[64];
+  int[] count = new int[64];
+  int[] boxX0 = new int[64];
+  int[] boxY0 = new int[64];
+  int[] boxX1 = new int[64];
+  int[] boxY1 = new int[64];
+  int   polygons;
+  int   mostPoints;
+
+  // What to draw, in order: the polygon, whether to fill it or outline it and the color. Then
+  // the things to draw in each tile, where each tile's run of them starts and where the next one
+  // goes as they are binned.
+
+  int[]     opPolygon = new int[64];
+  boolean[] opFill = new boolean[64];
+  int[]     opColor = new int[64];
+  int       ops;
+  int[]     bins = new int[64];
+  int[]     binStart = new int[1];
+  int[]     binNext = new int[0];
+
+  // Constructors:
+
+  public AsteroidsRaster(int threads) {
+
+    int i;
+
+    // Use a thread for each processor unless told how many.
+
+    this.threads = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+    workers = new AsteroidsTiles[this.threads];
+    for (i = 0; i < workers.length; i++)
+      workers[i] = new AsteroidsTiles(this);
+    if (this.threads > 1) {
+      pool = new ForkJoinPool(this.threads);
+      all = new RecursiveAction() {
+        protected void compute() {
+          invokeAll(workers);
+        }
+      };
+    }
+  }
+
+  // Methods:
+
+  public void setTarget(BufferedImage image) {
+
+    // Draw straight into the host's image from now on (or into one of the raster's own if
+    // null), which must keep its pixels in ints.
+
+    if (image != null && (image.getType() != BufferedImage.TYPE_INT_RGB && image.getType() != BufferedImage.TYPE_INT_ARGB ||
+                          !(image.getRaster().getDataBuffer() instanceof DataBufferInt)))
+      throw new IllegalArgumentException("Not an int RGB image: " + image);
+    this.image = image;
+    own = image == null;
+    pixels = image != null ? ((DataBufferInt) image.getRaster().getDataBuffer()).getData() : null;
+  }
+
+  public void begin(int width, int height, Point[] stars, int numStars) {
+
+    int i;
+
+    // Start a frame of the given size, with the given stars behind it (or none). The raster's
+    // own image is made again if the size has changed.
+
+    if (image == null || image.getWidth() != width || image.getHeight() != height) {
+      if (!own && image != null)
+        throw new IllegalArgumentException("Frame is " + width + "x" + height + ", image is "
+                                           + image.getWidth() + "x" + image.getHeight());
+      image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+      pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+      own = true;
+    }
+    if (width != this.width || height != this.height) {
+      this.width = width;
+      this.height = height;
+      cols = (width + TILE - 1) / TILE;
+      rows = (height + TILE - 1) / TILE;
+      binStart = new int[cols * rows + 1];
+      binNext = new int[cols * rows];
+      starStart = null;
+    }
+
+    // Sort the stars by tile when they change, the same way as everything else is binned.
+    // Copying in a whole background of stars would cost several times more than filling each
+    // tile with black and putting in its few stars.
+
+    if (stars != null && (starStart == null || stars != this.stars || numStars != this.numStars)) {
+      starStart = new int[cols * rows + 1];
+      starPixels = new int[numStars];
+      for (i = 0; i < numStars; i++)
+        if (stars[i].x >= 0 && stars[i].x < width && stars[i].y >= 0 && stars[i].y < height)
+          starStart[(stars[i].y / TILE) * cols + stars[i].x / TILE + 1]++;
+      for (i = 0; i < cols * rows; i++)
+        starStart[i + 1] += starStart[i];
+      System.arraycopy(starStart, 0, binNext, 0, cols * rows);
+      for (i = 0; i < numStars; i++)
+        if (stars[i].x >= 0 && stars[i].x < width && stars[i].y >= 0 && stars[i].y < height)
+          starPixels[binNext[(stars[i].y / TILE) * cols + stars[i].x / TILE]++] = stars[i].y * width + stars[i].x;
+    }
+    this.stars = stars;
+    this.numStars = numStars;
+    points = polygons = ops = 0;
+  }
+
+  public int add(Polygon p, int dx, int dy) {
+
+    int i, j, k, n;
+
+    // Add the polygon, moved by dx, dy, and return its number.
+
+    n = p.npoints;
+    if (points + n > xs.length) {
+      xs = Arrays.copyOf(xs, 2 * (points + n));
+      ys = Arrays.copyOf(ys, 2 * (points + n));
+      steps = Arrays.copyOf(steps, 2 * (points + n));
+    }
+    if (polygons == first.length) {
+      first = Arrays.copyOf(first, 2 * polygons);
+      count = Arrays.copyOf(count, 2 * polygons);
+      boxX0 = Arrays.copyOf(boxX0, 2 * polygons);
+      boxY0 = Arrays.copyOf(boxY0, 2 * polygons);
+      boxX1 = Arrays.copyOf(boxX1, 2 * polygons);
+      boxY1 = Arrays.copyOf(boxY1, 2 * polygons);
+    }
+    first[polygons] = points;
+    count[polygons] = n;
+    boxX0[polygons] = boxY0[polygons] = Integer.MAX_VALUE;
+    boxX1[polygons] = boxY1[polygons] = Integer.MIN_VALUE;
+    for (i = 0; i < n; i++) {
+      k = points + i;
+      xs[k] = p.xpoints[i] + dx;
+      ys[k] = p.ypoints[i] + dy;
+      boxX0[polygons] = Math.min(boxX0[polygons], xs[k]);
+      boxY0[polygons] = Math.min(boxY0[polygons], ys[k]);
+      boxX1[polygons] = Math.max(boxX1[polygons], xs[k]);
+      boxY1[polygons] = Math.max(boxY1[polygons], ys[k]);
+    }
+
+    // Work out each edge's step in x per row, the same whichever end it is walked from.
+
+    for (i = 0; i < n; i++) {
+      k = points + i;
+      j = points + (i + 1 < n ? i + 1 : 0);
+      steps[k] = ys[j] != ys[k] ? ((xs[j] - xs[k]) << PREC) / (ys[j] - ys[k]) : 0;
+    }
+    points += n;
+    mostPoints = Math.max(mostPoints, n);
+    return polygons++;
+  }
+
+  public void fill(int from, int color) {
+
+    // Fill the polygons from the given one to the last added.
+
+    for (; from < polygons; from++)
+      op(from, true, color);
+  }
+
+  public void outline(int from, int color) {
+
+    for (; from < polygons; from++)
+      op(from, false, color);
+  }
+
+  void op(int polygon, boolean fill, int color) {
+
+    if (ops == opPolygon.length) {
+      opPolygon = Arrays.copyOf(opPolygon, 2 * ops);
+      opFill = Arrays.copyOf(opFill, 2 * ops);
+      opColor = Arrays.copyOf(opColor, 2 * ops);
+    }
+    opPolygon[ops] = polygon;
+    opFill[ops] = fill;
+    opColor[ops] = color;
+    ops++;
+  }
+
+  public void draw() {
+
+    int i;
+
+    // Bin what is to be drawn by tile, then draw the tiles, on the pool if there is one.
+
+    bin();
+    next.set(0);
+    if (pool == null)
+      workers[0].compute();
+    else {
+      for (i = 0; i < workers.length; i++)
+        workers[i].reinitialize();
+      all.reinitialize();
+      pool.invoke(all);
+    }
+  }
+
+  void bin() {
+
+    int i, k, p, r, c, c0, c1, r0, r1, tiles;
+
+    // Count what touches each tile, work out where each tile's run starts from that, then put
+    // everything in its tiles' runs, in order.
+
+    tiles = cols * rows;
+    for (i = 0; i <= tiles; i++)
+      binStart[i] = 0;
+    for (k = 0; k < 2; k++) {
+      for (i = 0; i < ops; i++) {
+        p = opPolygon[i];
+        c0 = Math.max(boxX0[p], 0) / TILE;
+        c1 = Math.min(boxX1[p], width - 1) / TILE;
+        r0 = Math.max(boxY0[p], 0) / TILE;
+        r1 = Math.min(boxY1[p], height - 1) / TILE;
+        if (boxX1[p] < 0 || boxY1[p] < 0 || boxX0[p] >= width || boxY0[p] >= height)
+          continue;
+        for (r = r0; r <= r1; r++)
+          for (c = c0; c <= c1; c++)
+            if (k == 0)
+              binStart[r * cols + c + 1]++;
+            else
+              bins[binNext[r * cols + c]++] = i;
+      }
+      if (k == 0) {
+        for (i = 0; i < tiles; i++)
+          binStart[i + 1] += binStart[i];
+        if (bins.length < binStart[tiles])
+          bins = new int[2 * binStart[tiles]];
+        System.arraycopy(binStart, 0, binNext, 0, tiles);
+      }
+    }
+  }
+
+  public void shutdown() {
+
+    if (pool != null)
+      pool.shutdown();
+  }
+}
+
+/************************************************************************************************
+  The AsteroidsTiles class is one of the threads' share of drawing an AsteroidsRaster frame: it
+  takes tiles until there are none left, and keeps the room it needs to fill a polygon.
+************************************************************************************************/
+
+class AsteroidsTiles extends RecursiveAction {
+
+  // Fields:
+
+  AsteroidsRaster raster;
+  int[]           crossings = new int[16];    // Where the edges cross a row, left to right, and
+  int[]           windings = new int[16];     // which way each goes.
+
+  // Constructors:
+
+  public AsteroidsTiles(AsteroidsRaster raster) {
+
+    this.raster = raster;
+  }
+
+  // Methods:
+
+  protected void compute() {
+
+    AsteroidsRaster r = raster;
+    int t;
+
+    if (crossings.length < r.mostPoints) {
+      crossings = new int[r.mostPoints];
+      windings = new int[r.mostPoints];
+    }
+    while ((t = r.next.getAndIncrement()) < r.cols * r.rows)
+      draw(t);
+  }
+
+  void draw(int t) {
+
+    AsteroidsRaster r = raster;
+    int x0, y0, x1, y1, y, i, k;
+
+    // Put down the background, then draw everything over the tile in turn.
+
+    x0 = (t % r.cols) * AsteroidsRaster.TILE;
+    y0 = (t / r.cols) * AsteroidsRaster.TILE;
+    x1 = Math.min(x0 + AsteroidsRaster.TILE, r.width) - 1;
+    y1 = Math.min(y0 + AsteroidsRaster.TILE, r.height) - 1;
+    for (y = y0; y <= y1; y++)
+      Arrays.fill(r.pixels, y * r.width + x0, y * r.width + x1 + 1, AsteroidsRaster.BLACK);
+    if (r.stars != null)
+      for (k = r.starStart[t]; k < r.starStart[t + 1]; k++)
+        r.pixels[r.starPixels[k]] = AsteroidsRaster.WHITE;
+    for (k = r.binStart[t]; k < r.binStart[t + 1]; k++) {
+      i = r.bins[k];
+      if (r.opFill[i])
+        fill(r.opPolygon[i], r.opColor[i], x0, y0, x1, y1);
+      else
+        outline(r.opPolygon[i], r.opColor[i], x0, y0, x1, y1);
+    }
+  }
+
+  void fill(int p, int color, int x0, int y0, int x1, int y1) {
+
+    AsteroidsRaster r = raster;
+    int[] xs = r.xs, ys = r.ys;
+    int i, j, k, m, n, s, y, x, w, winding, left, right;
+
+    // Find where each edge crosses each row of the polygon within the tile. An edge covers the
+    // rows from its top end down to just above its bottom end, and its x on a row is stepped
+    // down from its top end.
+
+    s = r.first[p];
+    n = r.count[p];
+    left = 0;
+    for (y = Math.max(r.boxY0[p], y0); y <= Math.min(r.boxY1[p], y1); y++) {
+      m = 0;
+      for (i = s; i < s + n; i++) {
+        j = i + 1 < s + n ? i + 1 : s;
+        if (ys[i] <= y && y < ys[j]) {
+          x = (xs[i] << AsteroidsRaster.PREC) + (y - ys[i]) * r.steps[i];
+          w = 1;
+        }
+        else if (ys[j] <= y && y < ys[i]) {
+          x = (xs[j] << AsteroidsRaster.PREC) + (y - ys[j]) * r.steps[i];
+          w = -1;
+        }
+        else
+          continue;
+        for (k = m; k > 0 && crossings[k - 1] > x; k--) {
+          crossings[k] = crossings[k - 1];
+          windings[k] = windings[k - 1];
+        }
+        crossings[k] = x;
+        windings[k] = w;
+        m++;
+      }
+
+      // Fill wherever the edges wind around, from the first pixel at or right of the crossing
+      // that starts it to the last pixel left of the one that ends it.
+
+      winding = 0;
+      for (k = 0; k < m; k++) {
+        if (winding == 0)
+          left = (crossings[k] + AsteroidsRaster.ONE - 1) >> AsteroidsRaster.PREC;
+        winding += windings[k];
+        if (winding == 0) {
+          right = (crossings[k] - 1) >> AsteroidsRaster.PREC;
+          left = Math.max(left, x0);
+          right = Math.min(right, x1);
+          if (left <= right)
+            Arrays.fill(r.pixels, y * r.width + left, y * r.width + right + 1, color);
+        }
+      }
+    }
+  }
+
+  void outline(int p, int color, int x0, int y0, int x1, int y1) {
+
+    AsteroidsRaster r = raster;
+    int i, j, s, n;
+
+    s = r.first[p];
+    n = r.count[p];
+    for (i = s; i < s + n; i++) {
+      j = i + 1 < s + n ? i + 1 : s;
+      line(r.xs[i], r.ys[i], r.xs[j], r.ys[j], color, x0, y0, x1, y1);
+    }
+  }
+
+  void line(int xa, int ya, int xb, int yb, int color, int x0, int y0, int x1, int y1) {
+
+    AsteroidsRaster r = raster;
+    int dx, dy, sx, sy, error, i, n, x, y;
+
+    // Draw the line from xa, ya to xb, yb, as far as it lies in the tile.
+
+    if (Math.max(xa, xb) < x0 || Math.min(xa, xb) > x1 || Math.max(ya, yb) < y0 || Math.min(ya, yb) > y1)
+      return;
+    dx = Math.abs(xb - xa);
+    dy = Math.abs(yb - ya);
+    sx = xb < xa ? -1 : 1;
+    sy = yb < ya ? -1 : 1;
+
+    // Start at the first step along the major axis that lies in the tile. After i steps the line
+    // has moved (2 * i * minor + major) / (2 * major) pixels along the minor axis, rounded down,
+    // and the error has grown by 2 * minor a step less 2 * major a move.
+
+    if (dx >= dy) {
+      i = Math.max(0, sx > 0 ? x0 - xa : xa - x1);
+      n = Math.min(dx, sx > 0 ? x1 - xa : xa - x0);
+      y = dx > 0 ? (2 * dy * i + dx) / (2 * dx) : 0;
+      error = 2 * dy * i - 2 * dx * y;
+      x = xa + sx * i;
+      y = ya + sy * y;
+      for (; i <= n; i++) {
+        if (y >= y0 && y <= y1)
+          r.pixels[y * r.width + x] = color;
+        x += sx;
+        error += 2 * dy;
+        if (error >= dx) {
+          y += sy;
+          error -= 2 * dx;
+        }
+      }
+    }
+    else {
+      i = Math.max(0, sy > 0 ? y0 - ya : ya - y1);
+      n = Math.min(dy, sy > 0 ? y1 - ya : ya - y0);
+      x = (2 * dx * i + dy) / (2 * dy);
+      error = 2 * dx * i - 2 * dy * x;
+      x = xa + sx * x;
+      y = ya + sy * i;
+      for (; i <= n; i++) {
+        if (x >= x0 && x <= x1)
+          r.pixels[y * r.width + x] = color;
+        y += sy;
+        error += 2 * dx;
+        if (error >= dy) {
+          x += sx;
+          error -= 2 * dy;
+        }
+      }
+    }
+  }
+}
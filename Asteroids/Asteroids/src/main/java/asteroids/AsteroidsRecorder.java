@@ -0,0 +1,122 @@
+/************************************************************************************************
+
+AsteroidsRecorder.java
+
+  Writes a game to a recording that AsteroidsReplay can play back. A world's play is decided
+  entirely by its size, pool sizes and seed and by the input bits given to each step(), so that
+  is all a recording holds: a fixed header, then the input for every tick, run length encoded.
+
+  Format (all numbers big endian):
+
+    int    magic         'A' 'S' 'T' 'R'
+    short  version       3 (2 before the saucer and missle only scored for the first photon
+                         to hit them on a tick, 1 before asteroids were also rotated by
+                         table; AsteroidsReplay plays older versions back by the rules
+                         they were made with)
+    int    width, height
+    int    shots, rocks, scrap
+    long   seed
+    runs, one after another until the end of the file:
+      byte    input      Input bits for the run.
+      varint  count      Number of ticks with that input, 7 bits a byte, low bits first, the
+                         top bit set on every byte but the last.
+
+  A player holding the same keys for a second at 20 ticks a second costs two bytes. Runs are
+  only ever appended, so a recording cut short (the program was killed) is still good up to
+  the last complete run.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.*;
+
+class AsteroidsRecorder {
+
+  // Constants
+
+  static final int   MAGIC   = 0x41535452;    // "ASTR"
+  static final short VERSION = 3;
+  static final int   HEADER  = 34;            // Bytes before the first run.
+
+  // Fields:
+
+  OutputStream out;
+  int  input;          // Input bits of the run being counted, and its length so far.
+  long count;
+  long ticks;          // Ticks recorded, and bytes written.
+  long bytes;
+
+  // Constructors:
+
+  public AsteroidsRecorder(OutputStream out, AsteroidsWorld world) throws IOException {
+
+    DataOutputStream d;
+
+    // Write the header. The world should be freshly created, since a replay starts from a new
+    // world built from the same values.
+
+    this.out = out instanceof BufferedOutputStream ? out : new BufferedOutputStream(out);
+    d = new DataOutputStream(this.out);
+    d.writeInt(MAGIC);
+    d.writeShort(VERSION);
+    d.writeInt(world.width);
+    d.writeInt(world.height);
+    d.writeInt(world.photonPool.capacity());
+    d.writeInt(world.asteroidPool.capacity());
+    d.writeInt(world.explosionPool.capacity());
+    d.writeLong(world.random.seed);
+    d.flush();
+    bytes = HEADER;
+  }
+
+  public AsteroidsRecorder(File file, AsteroidsWorld world) throws IOException {
+
+    this(new FileOutputStream(file), world);
+  }
+
+  // Methods:
+
+  public void record(int input) throws IOException {
+
+    // Count one tick with the given input, writing out the previous run if it has changed.
+
+    input &= 0xff;
+    if (count > 0 && input != this.input)
+      writeRun();
+    this.input = input;
+    count++;
+    ticks++;
+  }
+
+  public void flush() throws IOException {
+
+    // Write out the run so far and push everything to the file. Recording carries on
+    // afterwards, a run cut in two this way replays just the same.
+
+    if (count > 0)
+      writeRun();
+    out.flush();
+  }
+
+  public void close() throws IOException {
+
+    flush();
+    out.close();
+  }
+
+  void writeRun() throws IOException {
+
+    long n;
+
+    out.write(input);
+    bytes++;
+    for (n = count; n >= 0x80; n >>>= 7) {
+      out.write((int) (n & 0x7f) | 0x80);
+      bytes++;
+    }
+    out.write((int) n);
+    bytes++;
+    count = 0;
+  }
+}
@@ -0,0 +1,687 @@
+/************************************************************************************************
+
+AsteroidsRenderer.java
+
+  Draws an AsteroidsWorld, its starry background and the status messages onto any Graphics
+  context. The applet uses it to paint its offscreen image, and since it needs no applet or
+  display of its own it can just as well draw into a BufferedImage.
+
+  A frame may fall between two ticks of the game. Each sprite is then drawn part way back along
+  its last move, by the fraction alpha, so motion looks smooth at any frame rate. At an alpha of
+  1 (the default) sprites are drawn exactly where the last tick left them.
+
+  The stars never move, so when drawing to an accelerated surface (the screen, or a volatile
+  image) they are drawn once into an image that is then copied in one go at the start of each
+  frame, and only drawn again when the frame changes size. The copy is then done by the graphics
+  hardware from a cached copy of the image. In plain memory copying the whole frame costs more
+  than filling it and drawing each star, so there the stars are still drawn one at a time.
+
+  Sprites drawn alike are drawn together: the outlines of all the photons, of all the asteroids
+  (and, in detail, their black fill), and of all the debris of each shade are gathered into
+  paths and drawn a path at a time, so the color is set once per group rather than once per
+  sprite. A path holds at most BATCH sprites, since filling one with many more overlapping
+  shapes costs more than filling them one by one.
+  In detail, then, asteroids that overlap all show their outlines, where before the last one
+  drawn covered the others, and debris that overlaps is drawn darkest first rather than in the
+  order it was made. Otherwise the pixels are the same as drawing each sprite on its own: the
+  sprites running off the edge of the area being drawn, where a path would be cut a little
+  differently, are drawn a line at a time. Shades of gray come from a table, the paths are
+  kept from frame to frame and the status lines are written over in place where their numbers
+  change (see AsteroidsHud), so once the paths have grown to fit a frame allocates nothing.
+
+  In dirty rectangle mode (see AsteroidsDirty) the frame is kept from one paint to the next.
+  The frame is first walked through without drawing anything, marking where each sprite and
+  line of text goes, and then only the rectangles that changed are drawn again, each under a
+  clip and leaving out what lies outside it. The pixels are the same as drawing it whole.
+
+  With a raster (see AsteroidsRaster) the stars and sprites are not drawn through the Graphics
+  at all. Each group of sprites is handed to the raster instead, which draws the lot straight
+  into an image's pixels on several threads, and the status text is drawn over that. The raster
+  takes the place of dirty rectangle mode if both are set: each frame is then drawn, and copied
+  out, whole.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.*;
+import java.awt.geom.Path2D;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+
+class AsteroidsRenderer {
+
+  // Constants
+
+  static final int     BATCH = 32;                 // Most sprites to gather into one path.
+  static final Color[] GRAYS = new Color[256];    // Every shade of gray, black to white.
+
+  static {
+    int i;
+
+    for (i = 0; i < GRAYS.length; i++)
+      GRAYS[i] = new Color(i, i, i);
+  }
+
+  // Fields:
+
+  AsteroidsWorld world;
+
+  // Background stars, the size of the area they were scattered over and the image they are
+  // drawn into.
+
+  int           numStars;
+  Point[]       stars;
+  int           starsWidth, starsHeight;
+  BufferedImage starfield;
+
+  // Font data.
+
+  Font font = new Font("Helvetica", Font.BOLD, 12);
+  FontMetrics fm;
+  int fontWidth;
+  int fontHeight;
+  Font profileFont = new Font("Monospaced", Font.PLAIN, 11);
+
+  // Position of the frame between the previous tick (0) and the last one (1), and the offset
+  // applied to the sprite being drawn.
+
+  double alpha = 1.0;
+  int    shiftX, shiftY;
+
+  // Paths the outlines of a group of sprites are gathered into, those within the area being
+  // drawn (BATCH to a path) and those that run out of it, with the sprites in each, and the
+  // area being drawn (the screen, or in dirty rectangle mode a rectangle of it), inclusive.
+
+  Path2D.Float[]    paths = new Path2D.Float[0];
+  int               outlined;
+  Path2D.Float      clippedPath = new Path2D.Float();
+  AsteroidsSprite[] clipped = new AsteroidsSprite[16];
+  int               clippedCount;
+  int               areaX0, areaY0, areaX1, areaY1;
+
+  // Debris in order of shade, and the start of each shade's run in it, by counter value.
+
+  int[] debris = new int[0];
+  int[] shadeStart = new int[0];
+
+  // Status text, and the lines with numbers in them.
+
+  AsteroidsHud    hud;
+  AsteroidsNumber scoreLine, shipsLine, highLine, loadingLine;
+  int             loadingTotal;
+
+  // State of the host, for the status messages.
+
+  boolean loaded;
+  boolean paused;
+  boolean sound;
+  int     soundsReady;     // Sounds loaded so far, while loaded is false.
+  int     soundsTotal;
+
+  // Dirty rectangle mode, if the frame is kept from one paint to the next (else null), whether
+  // the stars were shown last frame, and whether the frame is being marked rather than drawn.
+
+  AsteroidsDirty dirty;
+  boolean        dirtyDetail;
+  boolean        marking;
+
+  // The box each sprite is drawn in, worked out while marking the frame (four to a sprite, in
+  // the order they are drawn), and how many sprites have been drawn.
+
+  int[] boxes = new int[0];
+  int   marked;
+
+  // The raster the stars and sprites are drawn with instead (or null), and its first polygon
+  // in the group of sprites being gathered.
+
+  AsteroidsRaster raster;
+  int             rasterFirst;
+
+  // Constructors:
+
+  public AsteroidsRenderer(AsteroidsWorld world) {
+
+    this.world = world;
+    initStars(world.width, world.height);
+    sound = true;
+  }
+
+  // Methods:
+
+  public void paint(Graphics g, int width, int height) {
+
+    AsteroidsWorld w = world;
+    Graphics2D g2;
+    long start;
+
+    start = w.profiler != null ? System.nanoTime() : 0;
+
+    // Set font data the first time through.
+
+    if (fm == null) {
+      fm = g.getFontMetrics(font);
+      fontWidth = fm.getMaxAdvance();
+      fontHeight = fm.getHeight();
+    }
+
+    // Sprites are drawn in groups, through the 2D graphics every AWT graphics really is.
+
+    g2 = (Graphics2D) g;
+    cull(0, 0, width, height);
+
+    // Draw the whole frame, or in dirty rectangle mode only what has changed.
+
+    if (raster != null)
+      paintRaster(g2, width, height);
+    else if (dirty == null) {
+      drawBackground(g, width, height);
+      drawScene(g2, width, height);
+    }
+    else
+      paintDirty(g2, width, height);
+
+    // If the game is being profiled, count the time taken to draw it and show the profile over
+    // it (which is not counted).
+
+    if (w.profiler != null) {
+      w.profiler.paint(System.nanoTime() - start);
+      drawProfile(g, w.profiler.overlay());
+    }
+  }
+
+  void paintDirty(Graphics2D g, int width, int height) {
+
+    AsteroidsWorld w = world;
+    int i;
+
+    // Walk through the frame without drawing it, marking where everything in it will go. The
+    // whole frame is drawn again if the stars have been switched on or off, or if the profile
+    // is shown over it.
+
+    dirty.begin(width, height);
+    if (w.detail != dirtyDetail || w.profiler != null)
+      dirty.invalidate();
+    dirtyDetail = w.detail;
+    marking = true;
+    marked = 0;
+    drawScene(g, width, height);
+    marking = false;
+
+    // Then draw each rectangle that changed, background and all, leaving out what lies
+    // outside it.
+
+    if (dirty.finish()) {
+      marked = 0;
+      drawBackground(g, width, height);
+      drawScene(g, width, height);
+    }
+    else {
+      for (i = 0; i < dirty.count; i++) {
+        cull(dirty.x[i], dirty.y[i], dirty.w[i], dirty.h[i]);
+        marked = 0;
+        g.setClip(dirty.x[i], dirty.y[i], dirty.w[i], dirty.h[i]);
+        drawBackground(g, width, height);
+        drawScene(g, width, height);
+      }
+      g.setClip(null);
+    }
+  }
+
+  void paintRaster(Graphics2D g, int width, int height) {
+
+    // Hand the stars and sprites to the raster and have it draw them, then copy them in unless
+    // it drew straight into the image being painted. The status goes over them as usual. In
+    // dirty rectangle mode the whole frame is marked as changed, so all of it is copied out.
+
+    if (dirty != null) {
+      dirty.begin(width, height);
+      dirty.invalidate();
+      dirty.finish();
+    }
+    raster.begin(width, height, world.detail ? stars : null, numStars);
+    drawSprites(g);
+    raster.draw();
+    if (raster.own)
+      g.drawImage(raster.image, 0, 0, null);
+    drawStatus(g, width, height);
+  }
+
+  void cull(int x, int y, int width, int height) {
+
+    areaX0 = x;
+    areaY0 = y;
+    areaX1 = x + width - 1;
+    areaY1 = y + height - 1;
+  }
+
+  boolean shows(int x0, int y0, int x1, int y1) {
+
+    // Whether anything drawn within the box from x0, y0 to x1, y1 (inclusive) is to be drawn
+    // now. Marking the frame, it never is, but its box is marked.
+
+    if (dirty == null)
+      return true;
+    if (marking) {
+      dirty.mark(x0, y0, x1, y1);
+      return false;
+    }
+    return x1 + AsteroidsDirty.MARGIN >= areaX0 && x0 - AsteroidsDirty.MARGIN <= areaX1 &&
+           y1 + AsteroidsDirty.MARGIN >= areaY0 && y0 - AsteroidsDirty.MARGIN <= areaY1;
+  }
+
+  void drawBackground(Graphics g, int width, int height) {
+
+    // Fill in background and stars. Stars copied into a rectangle of a frame in dirty
+    // rectangle mode come from the image even in plain memory, since only that part is copied.
+
+    if (world.detail && (isAccelerated(g) || dirty != null && !dirty.full)) {
+      if (starfield == null || starfield.getWidth() != width || starfield.getHeight() != height)
+        drawStarfield(g, width, height);
+      g.drawImage(starfield, 0, 0, null);
+    }
+    else {
+      g.setColor(Color.black);
+      g.fillRect(0, 0, width, height);
+      if (world.detail)
+        drawStars(g);
+    }
+  }
+
+  void drawScene(Graphics2D g2, int width, int height) {
+
+    drawSprites(g2);
+
+    // Display status and messages.
+
+    drawStatus(g2, width, height);
+  }
+
+  void drawSprites(Graphics2D g2) {
+
+    AsteroidsWorld w = world;
+    int k;
+
+    // Draw photon bullets.
+
+    begin();
+    for (k = 0; k < w.photonPool.count; k++)
+      outline(w.photons[w.photonPool.live[k]]);
+    draw(g2, Color.white);
+
+    // Draw the guided missle, counter is used to quickly fade color to black when near expiration.
+
+    if (w.missle.isActive()) {
+      begin();
+      outline(w.missle);
+      draw(g2, GRAYS[Math.min(w.missleCounter * 24, 255)]);
+    }
+
+    // Draw the asteroids.
+
+    begin();
+    for (k = 0; k < w.asteroidPool.count; k++)
+      outline(w.asteroids[w.asteroidPool.live[k]]);
+    if (w.detail)
+      fill(g2, Color.black);
+    draw(g2, Color.white);
+
+    // Draw the flying saucer.
+
+    if (w.ufo.isActive()) {
+      begin();
+      outline(w.ufo);
+      if (w.detail)
+        fill(g2, Color.black);
+      draw(g2, Color.white);
+    }
+
+    // Draw the ship, counter is used to fade color to white on hyperspace.
+
+    if (w.ship.isActive()) {
+      begin();
+      outline(w.ship);
+      if (w.detail && w.hyperCounter == 0)
+        fill(g2, Color.black);
+      draw(g2, GRAYS[255 - (255 / w.rules.hyperCount) * w.hyperCounter]);
+    }
+
+    // Draw any explosion debris, counters are used to fade color to black.
+
+    drawDebris(g2);
+  }
+
+  void drawStatus(Graphics g, int width, int height) {
+
+    AsteroidsWorld w = world;
+    String s;
+
+    // Set up the text the first time through. The numbers are only written out again where
+    // they change (see AsteroidsHud).
+
+    if (hud == null) {
+      hud = new AsteroidsHud(font, fm, g);
+      scoreLine = new AsteroidsNumber(hud, "Score: ", null);
+      shipsLine = new AsteroidsNumber(hud, "Ships: ", null);
+      highLine = new AsteroidsNumber(hud, "High: ", null);
+    }
+    hud.begin(g);
+
+    scoreLine.set(w.score);
+    shipsLine.set(w.shipsLeft);
+    highLine.set(w.highScore);
+    number(g, scoreLine, fontWidth, fontHeight);
+    number(g, shipsLine, fontWidth, height - fontHeight);
+    number(g, highLine, width - (fontWidth + highLine.width()), fontHeight);
+    if (!sound) {
+      s = "Mute";
+      text(g, s, width - (fontWidth + hud.stringWidth(s)), height - fontHeight);
+    }
+    
+    if (!w.playing) {
+      s = "A S T E R O I D S";
+      text(g, s, (width - hud.stringWidth(s)) / 2, height / 2);
+      s = "Copyright 1998 by Mike Hall";
+      text(g, s, (width - hud.stringWidth(s)) / 2, height / 2 + fontHeight);
+      s = "Game Over";
+      text(g, s, (width - hud.stringWidth(s)) / 2, height / 4);
+      s = "'S' to Start";
+      text(g, s, (width - hud.stringWidth(s)) / 2, height / 4 + fontHeight);
+    }
+    else if (paused) {
+      s = "Game Paused";
+      text(g, s, (width - hud.stringWidth(s)) / 2, height / 4);
+    }
+
+    // The game can be played while the sounds load, each one is heard once it is ready.
+
+    if (!loaded) {
+      if (loadingLine == null || loadingTotal != soundsTotal) {
+        loadingTotal = soundsTotal;
+        loadingLine = new AsteroidsNumber(hud, "Loading sounds... ", " of " + loadingTotal);
+      }
+      loadingLine.set(soundsReady);
+      number(g, loadingLine, (width - loadingLine.width()) / 2, height - fontHeight);
+    }
+  }
+
+  void text(Graphics g, String s, int x, int y) {
+
+    // Draw a message with its baseline starting at x, y, unless it is outside the area being
+    // drawn.
+
+    if (shows(x - AsteroidsHud.PAD, y - hud.ascent, x + hud.stringWidth(s) + AsteroidsHud.PAD,
+              y - hud.ascent + hud.height - 1))
+      hud.drawText(g, s, x, y);
+  }
+
+  void number(Graphics g, AsteroidsNumber line, int x, int y) {
+
+    if (shows(x - AsteroidsHud.PAD, y - hud.ascent, x + line.width() + AsteroidsHud.PAD,
+              y - hud.ascent + hud.height - 1))
+      line.draw(g, x, y);
+  }
+
+  void drawProfile(Graphics g, String[] lines) {
+
+    int i, h;
+
+    g.setFont(profileFont);
+    g.setColor(Color.green);
+    h = g.getFontMetrics().getHeight();
+    for (i = 0; i < lines.length; i++)
+      g.drawString(lines[i], fontWidth, 2 * fontHeight + (i + 1) * h);
+  }
+
+  public void initStars(int width, int height) {
+
+    int i;
+
+    // Generate starry background.
+
+    numStars = width * height / 5000;
+    stars = new Point[numStars];
+    for (i = 0; i < numStars; i++)
+      stars[i] = new Point((int) (Math.random() * width), (int) (Math.random() * height));
+    starsWidth = width;
+    starsHeight = height;
+    starfield = null;
+  }
+
+  void drawStarfield(Graphics g, int width, int height) {
+
+    Graphics sg;
+
+    // Scatter a new set of stars if the frame is not the size they were made for, then draw
+    // them into an image suited to the screen (or image) the frame is being drawn on, so it can
+    // be copied without conversion.
+
+    if (width != starsWidth || height != starsHeight)
+      initStars(width, height);
+    if (g instanceof Graphics2D)
+      starfield = ((Graphics2D) g).getDeviceConfiguration().createCompatibleImage(width, height, Transparency.OPAQUE);
+    else
+      starfield = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    sg = starfield.getGraphics();
+    sg.setColor(Color.black);
+    sg.fillRect(0, 0, width, height);
+    drawStars(sg);
+    sg.dispose();
+  }
+
+  void drawStars(Graphics g) {
+
+    int i;
+
+    g.setColor(Color.white);
+    for (i = 0; i < numStars; i++)
+      g.drawLine(stars[i].x, stars[i].y, stars[i].x, stars[i].y);
+  }
+
+  static boolean isAccelerated(Graphics g) {
+
+    return g instanceof Graphics2D && ((Graphics2D) g).getDeviceConfiguration().getImageCapabilities().isAccelerated();
+  }
+
+  void drawDebris(Graphics2D g) {
+
+    AsteroidsWorld w = world;
+    int[] counter;
+    int i, k, n, c, scrap;
+
+    // Sort the debris by counter, which sets its shade, counting how many there are of each
+    // first so each finds its place in one pass.
+
+    counter = w.explosionCounter;
+    scrap = w.rules.scrapCount;
+    n = w.explosionPool.count;
+    if (debris.length < n)
+      debris = new int[w.explosionPool.capacity()];
+    if (shadeStart.length < scrap + 2)
+      shadeStart = new int[scrap + 2];
+    for (c = 0; c < scrap + 2; c++)
+      shadeStart[c] = 0;
+    for (k = 0; k < n; k++)
+      shadeStart[shade(counter[w.explosionPool.live[k]], scrap) + 1]++;
+    for (c = 0; c <= scrap; c++)
+      shadeStart[c + 1] += shadeStart[c];
+    for (k = 0; k < n; k++) {
+      i = w.explosionPool.live[k];
+      debris[shadeStart[shade(counter[i], scrap)]++] = i;
+    }
+
+    // Each shade's run now ends where the next one starts. Draw the darkest first, so the
+    // freshest debris is on top.
+
+    k = 0;
+    for (c = 0; c <= scrap; c++)
+      if (k < shadeStart[c]) {
+        begin();
+        for (; k < shadeStart[c]; k++)
+          outline(w.explosions[debris[k]]);
+        draw(g, GRAYS[(255 / scrap) * c]);
+      }
+  }
+
+  static int shade(int counter, int scrap) {
+
+    return Math.max(0, Math.min(scrap, counter));
+  }
+
+  void begin() {
+
+    int i;
+
+    if (raster != null) {
+      rasterFirst = raster.polygons;
+      return;
+    }
+    for (i = 0; i < paths.length && i * BATCH < outlined; i++)
+      paths[i].reset();
+    clippedPath.reset();
+    outlined = clippedCount = 0;
+  }
+
+  void outline(AsteroidsSprite s) {
+
+    Polygon p;
+    int i;
+
+    // Add the sprite's polygon, shifted along its last move, to the path. A line cut by the edge
+    // of the area being drawn is not drawn quite the same as part of a path as it is on its own,
+    // so a sprite that runs out of the area goes in a path of its own, to be filled, and is kept
+    // to have its outline drawn by itself. In dirty rectangle mode a sprite outside the area is
+    // left out. With a raster the polygon is simply handed to it.
+
+    shift(s);
+    p = s.sprite;
+    if (p.npoints == 0)
+      return;
+    if (raster != null) {
+      raster.add(p, shiftX, shiftY);
+      return;
+    }
+    if (dirty != null && !shows(p))
+      return;
+    for (i = 0; i < p.npoints; i++)
+      if (p.xpoints[i] + shiftX < areaX0 || p.xpoints[i] + shiftX > areaX1 ||
+          p.ypoints[i] + shiftY < areaY0 || p.ypoints[i] + shiftY > areaY1) {
+        if (clippedCount == clipped.length)
+          clipped = Arrays.copyOf(clipped, 2 * clipped.length);
+        clipped[clippedCount++] = s;
+        append(clippedPath, p);
+        return;
+      }
+    if (outlined / BATCH == paths.length) {
+      paths = Arrays.copyOf(paths, paths.length + 1);
+      paths[paths.length - 1] = new Path2D.Float();
+    }
+    append(paths[outlined / BATCH], p);
+    outlined++;
+  }
+
+  boolean shows(Polygon p) {
+
+    int i, k, x0, y0, x1, y1;
+
+    // Whether the sprite with this polygon is to be drawn now. Its box is worked out while
+    // marking the frame, and kept for drawing each rectangle of it.
+
+    k = 4 * marked++;
+    if (marking) {
+      if (k == boxes.length)
+        boxes = Arrays.copyOf(boxes, Math.max(64, 2 * boxes.length));
+      x0 = x1 = p.xpoints[0];
+      y0 = y1 = p.ypoints[0];
+      for (i = 1; i < p.npoints; i++) {
+        x0 = Math.min(x0, p.xpoints[i]);
+        x1 = Math.max(x1, p.xpoints[i]);
+        y0 = Math.min(y0, p.ypoints[i]);
+        y1 = Math.max(y1, p.ypoints[i]);
+      }
+      boxes[k] = x0 + shiftX;
+      boxes[k + 1] = y0 + shiftY;
+      boxes[k + 2] = x1 + shiftX;
+      boxes[k + 3] = y1 + shiftY;
+    }
+    return shows(boxes[k], boxes[k + 1], boxes[k + 2], boxes[k + 3]);
+  }
+
+  void append(Path2D.Float path, Polygon p) {
+
+    int i;
+
+    // Every point added to a path takes its lock. Holding it here lets the compiler leave those
+    // out, which makes building the path several times faster.
+
+    synchronized (path) {
+      path.moveTo(p.xpoints[0] + shiftX, p.ypoints[0] + shiftY);
+      for (i = 1; i < p.npoints; i++)
+        path.lineTo(p.xpoints[i] + shiftX, p.ypoints[i] + shiftY);
+      path.closePath();
+    }
+  }
+
+  void draw(Graphics2D g, Color c) {
+
+    Polygon p;
+    int i, k, n;
+
+    // Sprites that run out of the area are drawn a line at a time, which puts down the same
+    // pixels as drawPolygon() without the array it makes on every call.
+
+    if (raster != null) {
+      raster.outline(rasterFirst, c.getRGB());
+      return;
+    }
+    if (outlined == 0 && clippedCount == 0)
+      return;
+    g.setColor(c);
+    for (k = 0; k * BATCH < outlined; k++)
+      g.draw(paths[k]);
+    for (k = 0; k < clippedCount; k++) {
+      shift(clipped[k]);
+      p = clipped[k].sprite;
+      n = p.npoints;
+      for (i = 0; i < n; i++)
+        g.drawLine(p.xpoints[i] + shiftX, p.ypoints[i] + shiftY,
+                   p.xpoints[(i + 1) % n] + shiftX, p.ypoints[(i + 1) % n] + shiftY);
+    }
+  }
+
+  void fill(Graphics2D g, Color c) {
+
+    int k;
+
+    if (raster != null) {
+      raster.fill(rasterFirst, c.getRGB());
+      return;
+    }
+    if (outlined == 0 && clippedCount == 0)
+      return;
+    g.setColor(c);
+    for (k = 0; k * BATCH < outlined; k++)
+      g.fill(paths[k]);
+    if (clippedCount > 0)
+      g.fill(clippedPath);
+  }
+
+  void shift(AsteroidsSprite s) {
+
+    AsteroidsBodies b = s.bodies;
+    double dx, dy;
+
+    // Work out how far to move the sprite's polygon, rendered at the last tick, so it is drawn
+    // between where the sprite was and where it is now. A sprite that wrapped around the
+    // screen on its last move is drawn where it is.
+
+    dx = b.x[s.slot] - b.prevX[s.slot];
+    dy = b.y[s.slot] - b.prevY[s.slot];
+    if (alpha >= 1.0 || Math.abs(dx) > world.width / 2 || Math.abs(dy) > world.height / 2)
+      shiftX = shiftY = 0;
+    else {
+      shiftX = (int) Math.round((alpha - 1.0) * dx);
+      shiftY = (int) Math.round((alpha - 1.0) * dy);
+    }
+  }
+}
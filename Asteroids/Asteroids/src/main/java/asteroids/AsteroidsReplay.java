@@ -0,0 +1,156 @@
+/************************************************************************************************
+
+AsteroidsReplay.java
+
+  Plays back a recording made by AsteroidsRecorder. The file is mapped into memory rather than
+  read, so opening even a long recording costs next to nothing, pages are brought in by the
+  operating system as the replay reaches them, and many replays of the same file share one copy
+  in memory.
+
+  A replay builds a world from the recording's header and then steps it with the recorded
+  input as fast as it will go, with no clock, renderer or sound in the way. Recordings of
+  either version are played back as they were made.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+class AsteroidsReplay {
+
+  // Fields:
+
+  ByteBuffer buffer;           // The recording, positioned at the next run.
+
+  int  version;                // Values from the header.
+  int  width, height;
+  int  shots, rocks, scrap;
+  long seed;
+
+  int  input;                  // Input of the current run and the ticks left in it.
+  long count;
+  long tick;                   // Ticks played so far.
+
+  // Constructors:
+
+  public AsteroidsReplay(ByteBuffer buffer) throws IOException {
+
+    // Read the header of a recording held in the buffer.
+
+    this.buffer = buffer;
+    if (buffer.remaining() < AsteroidsRecorder.HEADER || buffer.getInt() != AsteroidsRecorder.MAGIC)
+      throw new IOException("Not a recording");
+    version = buffer.getShort();
+    if (version < 1 || version > AsteroidsRecorder.VERSION)
+      throw new IOException("Unknown recording version " + version);
+    width = buffer.getInt();
+    height = buffer.getInt();
+    shots = buffer.getInt();
+    rocks = buffer.getInt();
+    scrap = buffer.getInt();
+    seed = buffer.getLong();
+  }
+
+  public AsteroidsReplay(File file) throws IOException {
+
+    this(map(file));
+  }
+
+  // Methods:
+
+  static ByteBuffer map(File file) throws IOException {
+
+    RandomAccessFile f;
+
+    // The mapping stays valid after the file is closed.
+
+    f = new RandomAccessFile(file, "r");
+    try {
+      return f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+    }
+    finally {
+      f.close();
+    }
+  }
+
+  public AsteroidsWorld newWorld() {
+
+    AsteroidsWorld world;
+
+    // A version 1 recording was played with sprites rotated by Math.cos() and sin(), and one
+    // before version 3 with every photon hitting the saucer or missle scoring it, and each is
+    // played back the same way.
+
+    world = new AsteroidsWorld(width, height, shots, rocks, scrap, seed);
+    world.setExactRotation(version < 2);
+    world.setEveryHit(version < 3);
+    return world;
+  }
+
+  public int next() {
+
+    // Return the input for the next tick, or -1 at the end of the recording.
+
+    if (count == 0 && !nextRun())
+      return -1;
+    count--;
+    tick++;
+    return input;
+  }
+
+  public long play(AsteroidsWorld world, long ticks) {
+
+    long n, i;
+
+    // Step the world through up to the given number of ticks, a run at a time. Returns the
+    // number played, which is less only if the recording ran out.
+
+    n = 0;
+    while (n < ticks && (count > 0 || nextRun())) {
+      i = Math.min(count, ticks - n);
+      count -= i;
+      tick += i;
+      n += i;
+      while (i-- > 0)
+        world.step(input);
+    }
+    return n;
+  }
+
+  boolean nextRun() {
+
+    long n;
+    int b, shift;
+
+    // Decode runs until one of at least a tick. A run cut off by the end of the file, or with
+    // a count too long for a long, is taken as the end of the recording.
+
+    do {
+      if (buffer.remaining() < 2) {
+        count = 0;
+        return false;
+      }
+      input = buffer.get() & 0xff;
+      n = 0;
+      shift = 0;
+      do {
+        if (!buffer.hasRemaining() || shift > 63) {
+          count = 0;
+          return false;
+        }
+        b = buffer.get();
+        n |= (long) (b & 0x7f) << shift;
+        shift += 7;
+      } while ((b & 0x80) != 0);
+    } while (n == 0);
+    if (n < 0) {
+      count = 0;
+      return false;
+    }
+    count = n;
+    return true;
+  }
+}
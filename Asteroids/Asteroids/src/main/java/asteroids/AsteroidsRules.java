@@ -0,0 +1,127 @@
+/************************************************************************************************
+
+AsteroidsRules.java
+
+  The tunable numbers of a game: speeds, counter lengths and scoring. Each AsteroidsWorld plays by
+  its own copy, which starts out with the values in AsteroidsWorld's constants, so games with
+  different rules can run side by side. AsteroidsBatch changes them to sweep a grid of rules.
+
+  A recording only holds the world's size, pool sizes and seed, so it replays correctly only for
+  a game played with the default rules.
+
+************************************************************************************************/
+
+package asteroids;
+
+class AsteroidsRules {
+
+  // Names of the rules, as given to set() and shown by toString().
+
+  static final String[] NAMES = {
+    "MAX_SHIPS", "SCRAP_COUNT", "HYPER_COUNT", "STORM_PAUSE", "UFO_PASSES", "MIN_ROCK_SPEED",
+    "MAX_ROCK_SPEED", "BIG_POINTS", "SMALL_POINTS", "UFO_POINTS", "MISSLE_POINTS",
+    "NEW_SHIP_POINTS", "NEW_UFO_POINTS"
+  };
+
+  // Fields:
+
+  int maxShips      = AsteroidsWorld.MAX_SHIPS;
+  int scrapCount    = AsteroidsWorld.SCRAP_COUNT;
+  int hyperCount    = AsteroidsWorld.HYPER_COUNT;
+  int stormPause    = AsteroidsWorld.STORM_PAUSE;
+  int ufoPasses     = AsteroidsWorld.UFO_PASSES;
+  int minRockSpeed  = AsteroidsWorld.MIN_ROCK_SPEED;
+  int maxRockSpeed  = AsteroidsWorld.MAX_ROCK_SPEED;
+  int bigPoints     = AsteroidsWorld.BIG_POINTS;
+  int smallPoints   = AsteroidsWorld.SMALL_POINTS;
+  int ufoPoints     = AsteroidsWorld.UFO_POINTS;
+  int misslePoints  = AsteroidsWorld.MISSLE_POINTS;
+  int newShipPoints = AsteroidsWorld.NEW_SHIP_POINTS;
+  int newUfoPoints  = AsteroidsWorld.NEW_UFO_POINTS;
+
+  // Constructors:
+
+  public AsteroidsRules() {
+  }
+
+  public AsteroidsRules(AsteroidsRules rules) {
+
+    int i;
+
+    for (i = 0; i < NAMES.length; i++)
+      set(NAMES[i], rules.get(NAMES[i]));
+  }
+
+  // Methods:
+
+  public int get(String name) {
+
+    switch (index(name)) {
+      case  0: return maxShips;
+      case  1: return scrapCount;
+      case  2: return hyperCount;
+      case  3: return stormPause;
+      case  4: return ufoPasses;
+      case  5: return minRockSpeed;
+      case  6: return maxRockSpeed;
+      case  7: return bigPoints;
+      case  8: return smallPoints;
+      case  9: return ufoPoints;
+      case 10: return misslePoints;
+      case 11: return newShipPoints;
+      default: return newUfoPoints;
+    }
+  }
+
+  public void set(String name, int value) {
+
+    // Counters and speeds below one would stall the game or divide by zero in the renderer.
+
+    if (value < (index(name) < 7 ? 1 : 0))
+      throw new IllegalArgumentException(name + " out of range: " + value);
+    switch (index(name)) {
+      case  0: maxShips = value;      break;
+      case  1: scrapCount = value;    break;
+      case  2: hyperCount = value;    break;
+      case  3: stormPause = value;    break;
+      case  4: ufoPasses = value;     break;
+      case  5: minRockSpeed = value;  break;
+      case  6: maxRockSpeed = value;  break;
+      case  7: bigPoints = value;     break;
+      case  8: smallPoints = value;   break;
+      case  9: ufoPoints = value;     break;
+      case 10: misslePoints = value;  break;
+      case 11: newShipPoints = value; break;
+      default: newUfoPoints = value;  break;
+    }
+  }
+
+  static int index(String name) {
+
+    int i;
+
+    for (i = 0; i < NAMES.length; i++)
+      if (NAMES[i].equalsIgnoreCase(name))
+        return i;
+    throw new IllegalArgumentException("Unknown rule: " + name);
+  }
+
+  public String toString() {
+
+    StringBuffer s;
+    AsteroidsRules defaults;
+    int i;
+
+    // List only the rules that differ from the defaults.
+
+    s = new StringBuffer();
+    defaults = new AsteroidsRules();
+    for (i = 0; i < NAMES.length; i++)
+      if (get(NAMES[i]) != defaults.get(NAMES[i])) {
+        if (s.length() > 0)
+          s.append(' ');
+        s.append(NAMES[i]).append('=').append(get(NAMES[i]));
+      }
+    return s.length() > 0 ? s.toString() : "defaults";
+  }
+}
@@ -0,0 +1,338 @@
+/************************************************************************************************
+
+AsteroidsSessions.java
+
+  Usage:
+
+  java -Djava.awt.headless=true asteroids.AsteroidsSessions [options]
+
+  -sessions n   Games to host at once (default 1,000).
+  -threads n    Tick threads to run them on (default one per processor).
+  -seconds n    How long to run them for (default 10).
+  -tickrate n   Ticks per second for every game (default 20).
+  -pilot name   Pilot playing each game, spin or aim (default aim).
+
+  Hosts many games in one JVM, each a session: a world of its own with its own source of input
+  (here a pilot, where a server would have a player). Worlds share nothing, not even the size of
+  the playfield, so sessions of any size can run side by side.
+
+  The sessions are shared out among a few tick threads, each of which steps every one of its
+  sessions once per tick, paced by an AsteroidsClock of its own. A thread that falls behind
+  catches up a few ticks at a time and then drops the rest, as the applet's loop does, so an
+  overloaded thread slows its own sessions down rather than the others. Sessions can be added
+  and removed while the threads run; each thread's list is replaced whole when it changes, so
+  the threads never wait on a lock to read it. Each thread does hold a lock of its own while it
+  ticks, which remove() takes once to wait out a tick still stepping the session it removed, so
+  once remove() returns the world is the caller's again.
+
+  A thread per session (or a virtual thread per session, which Java 8 doesn't have) would spend
+  more on waking thousands of threads every tick than on the ticks themselves, which take a few
+  microseconds each.
+
+  Run as a program, hosts the given number of sessions for a while and reports the memory each
+  one takes, the time each thread spent ticking and how many sessions that leaves room for.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.util.Locale;
+
+public class AsteroidsSessions {
+
+  // Constants
+
+  static final int WIDTH  = 640;      // Playfield size for the sessions main() hosts.
+  static final int HEIGHT = 480;
+
+  // Fields:
+
+  int tickRate;
+
+  volatile AsteroidsSession[][] slices;     // Sessions run by each thread.
+  volatile boolean              running;
+  Thread[]                      threads;
+  Object[]                      locks;      // Held by each thread while it ticks.
+
+  AsteroidsClock[]     clocks;              // Statistics for each thread, only written by the
+  AsteroidsHistogram[] tickTimes;           // thread itself: its clock, the time each of its
+  long[]               busy;                // ticks took and their total, and the number of
+  long[]               sessionTicks;        // session ticks run.
+
+  // Constructors:
+
+  public AsteroidsSessions(int threads, int tickRate) {
+
+    int i;
+
+    this.tickRate = tickRate;
+    slices = new AsteroidsSession[Math.max(1, threads)][];
+    locks = new Object[slices.length];
+    for (i = 0; i < slices.length; i++) {
+      slices[i] = new AsteroidsSession[0];
+      locks[i] = new Object();
+    }
+  }
+
+  // Methods:
+
+  public synchronized AsteroidsSession add(AsteroidsWorld world, AsteroidsPilot pilot) {
+
+    AsteroidsSession[][] s;
+    AsteroidsSession session;
+    int i, t;
+
+    // Give the session to the thread with the fewest.
+
+    t = 0;
+    for (i = 1; i < slices.length; i++)
+      if (slices[i].length < slices[t].length)
+        t = i;
+    session = new AsteroidsSession(world, pilot);
+    s = slices.clone();
+    s[t] = new AsteroidsSession[slices[t].length + 1];
+    System.arraycopy(slices[t], 0, s[t], 0, slices[t].length);
+    s[t][slices[t].length] = session;
+    slices = s;
+    return session;
+  }
+
+  public synchronized boolean remove(AsteroidsSession session) {
+
+    AsteroidsSession[][] s;
+    int i, t;
+
+    // Take the session out of its thread's list, then wait for the thread to finish any tick
+    // it started with the old list. Its next tick reads the new one.
+
+    for (t = 0; t < slices.length; t++)
+      for (i = 0; i < slices[t].length; i++)
+        if (slices[t][i] == session) {
+          s = slices.clone();
+          s[t] = new AsteroidsSession[slices[t].length - 1];
+          System.arraycopy(slices[t], 0, s[t], 0, i);
+          System.arraycopy(slices[t], i + 1, s[t], i, slices[t].length - i - 1);
+          slices = s;
+          synchronized (locks[t]) {
+            return true;
+          }
+        }
+    return false;
+  }
+
+  public int size() {
+
+    AsteroidsSession[][] s;
+    int n, t;
+
+    s = slices;
+    n = 0;
+    for (t = 0; t < s.length; t++)
+      n += s[t].length;
+    return n;
+  }
+
+  public synchronized void start() {
+
+    int i;
+
+    if (running)
+      return;
+    running = true;
+    threads = new Thread[slices.length];
+    clocks = new AsteroidsClock[slices.length];
+    tickTimes = new AsteroidsHistogram[slices.length];
+    busy = new long[slices.length];
+    sessionTicks = new long[slices.length];
+    for (i = 0; i < slices.length; i++) {
+      clocks[i] = new AsteroidsClock(tickRate, tickRate);
+      tickTimes[i] = new AsteroidsHistogram();
+      threads[i] = new Thread(ticker(i), "Asteroids ticks " + i);
+      threads[i].start();
+    }
+  }
+
+  public synchronized void stop() throws InterruptedException {
+
+    int i;
+
+    if (!running)
+      return;
+    running = false;
+    for (i = 0; i < threads.length; i++) {
+      threads[i].interrupt();
+      threads[i].join();
+    }
+  }
+
+  Runnable ticker(final int t) {
+
+    return new Runnable() {
+      public void run() {
+        tick(t);
+      }
+    };
+  }
+
+  void tick(int t) {
+
+    AsteroidsClock clock;
+    AsteroidsSession[] s;
+    long start, time;
+    int i, n;
+
+    // Step every session on this thread once for each tick the clock pays out, then sleep
+    // until the next one is due.
+
+    clock = clocks[t];
+    clock.start(System.nanoTime());
+    while (running) {
+      n = clock.frame(System.nanoTime(), true);
+      while (n-- > 0) {
+        start = System.nanoTime();
+        synchronized (locks[t]) {
+          s = slices[t];
+          for (i = 0; i < s.length; i++)
+            s[i].step();
+        }
+        time = System.nanoTime() - start;
+        tickTimes[t].record(time);
+        busy[t] += time;
+        sessionTicks[t] += s.length;
+      }
+      try {
+        AsteroidsClock.sleep(clock.sleepTime(System.nanoTime()));
+      }
+      catch (InterruptedException e) {
+        break;
+      }
+    }
+  }
+
+  public void report(double seconds) {
+
+    AsteroidsHistogram all;
+    long ticks, dropped, late, time;
+    int t;
+
+    // Only call this once the threads have stopped.
+
+    all = new AsteroidsHistogram();
+    ticks = dropped = late = time = 0;
+    for (t = 0; t < threads.length; t++) {
+      all.add(tickTimes[t]);
+      ticks += sessionTicks[t];
+      dropped += clocks[t].droppedTicks;
+      late += clocks[t].lateFrames;
+      time += busy[t];
+    }
+    System.out.println("Ticks:      " + ticks + " session ticks, " + Math.round(ticks / seconds) + " per second, "
+                       + dropped + " thread ticks dropped, " + late + " late");
+    System.out.println("Tick time:  " + all.summary(1000) + " us per thread tick (budget "
+                       + 1000000 / tickRate + " us)");
+    System.out.println("Busy:       " + String.format(Locale.ROOT, "%.1f", 100.0 * time / (seconds * 1e9 * threads.length))
+                       + "% of " + threads.length + " threads");
+    if (time > 0)
+      System.out.println("Capacity:   about " + Math.round(ticks * 1e9 / time / tickRate)
+                         + " sessions per busy thread at " + tickRate + " ticks/sec");
+  }
+
+  static long usedMemory() {
+
+    Runtime r;
+    int i;
+
+    r = Runtime.getRuntime();
+    for (i = 0; i < 3; i++)
+      System.gc();
+    return r.totalMemory() - r.freeMemory();
+  }
+
+  public static void main(String[] args) throws InterruptedException {
+
+    AsteroidsSessions sessions;
+    AsteroidsWorld world;
+    String pilot;
+    long before, after, startTime;
+    double seconds;
+    int n, threads, time, tickRate, i;
+
+    n = 1000;
+    threads = Runtime.getRuntime().availableProcessors();
+    time = 10;
+    tickRate = AsteroidsClock.TICK_RATE;
+    pilot = "aim";
+    if (args.length % 2 != 0) {
+      System.out.println("Usage: java -Djava.awt.headless=true asteroids.AsteroidsSessions [-sessions n] [-threads n]"
+                         + " [-seconds n] [-tickrate n] [-pilot name]");
+      System.exit(2);
+    }
+    for (i = 0; i + 1 < args.length; i += 2)
+      if (args[i].equals("-sessions"))
+        n = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-threads"))
+        threads = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-seconds"))
+        time = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-tickrate"))
+        tickRate = Integer.parseInt(args[i + 1]);
+      else if (args[i].equals("-pilot"))
+        pilot = args[i + 1];
+      else
+        throw new IllegalArgumentException("Unknown option: " + args[i]);
+
+    // Set up the sessions, each with a game under way, and see what they cost.
+
+    sessions = new AsteroidsSessions(threads, tickRate);
+    before = usedMemory();
+    for (i = 0; i < n; i++) {
+      world = new AsteroidsWorld(WIDTH, HEIGHT, AsteroidsWorld.MAX_SHOTS, AsteroidsWorld.MAX_ROCKS,
+                                 AsteroidsWorld.MAX_SCRAP, i + 1);
+      world.initGame();
+      sessions.add(world, AsteroidsBatch.newPilot(pilot));
+    }
+    after = usedMemory();
+    System.out.println("Sessions:   " + sessions.size() + " on " + threads + " threads at " + tickRate + " ticks/sec, "
+                       + pilot + " pilot");
+    System.out.println("Memory:     " + (after - before) / n + " bytes per session, "
+                       + (after - before) / 1048576 + " MB in all");
+
+    startTime = System.nanoTime();
+    sessions.start();
+    Thread.sleep(time * 1000L);
+    sessions.stop();
+    seconds = (System.nanoTime() - startTime) / 1e9;
+    sessions.report(seconds);
+  }
+}
+
+/************************************************************************************************
+  The AsteroidsSession class is one hosted game: its world and where its input comes from.
+************************************************************************************************/
+
+class AsteroidsSession {
+
+  // Fields:
+
+  AsteroidsWorld world;
+  AsteroidsPilot pilot;
+
+  // Constructors:
+
+  public AsteroidsSession(AsteroidsWorld world, AsteroidsPilot pilot) {
+
+    this.world = world;
+    this.pilot = pilot;
+  }
+
+  // Methods:
+
+  public void step() {
+
+    // Play on, starting a new game whenever one ends.
+
+    if (!world.playing)
+      world.initGame();
+    world.step(pilot.input(world));
+  }
+}
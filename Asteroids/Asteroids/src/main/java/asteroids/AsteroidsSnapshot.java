@@ -0,0 +1,307 @@
+/************************************************************************************************
+
+AsteroidsSnapshot.java
+
+  A copy of the complete state of an AsteroidsWorld, taken between ticks, that can be put back
+  into the same world (or another built with the same size and pool sizes) to carry on exactly
+  as the original did.
+
+  The state is packed into an array of 64 bit words allocated once, up front, large enough for
+  the world with every pool full, so taking and restoring snapshots allocates nothing. Doubles
+  are stored by their bits, and shape points two coordinates to a word. Only sprites in play are
+  saved. Everything else a sprite carries (its polygon, bounds and radius) is worked out again
+  from its position and shape on restore, the same way render() did it the first time.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.*;
+
+class AsteroidsSnapshot {
+
+  // Constants
+
+  static final int WORLD_WORDS = 24;    // Room for the world's own fields.
+  static final int POOL_WORDS  =  3;    // Room for a pool's counts and stride.
+  static final int SLOT_WORDS  = 14;    // Room for one sprite, not counting its shape.
+
+  // Fields:
+
+  long[] data;
+  int    size;        // Words in use.
+  long   tick;        // World tick the snapshot was taken at, or -1 if it is empty.
+
+  // Constructors:
+
+  public AsteroidsSnapshot(AsteroidsWorld world) {
+
+    data = new long[capacity(world)];
+    tick = -1;
+  }
+
+  // Methods:
+
+  static int capacity(AsteroidsWorld world) {
+
+    // The most words a snapshot of this world can take.
+
+    return WORLD_WORDS + world.asteroidIsSmall.length
+         + capacity(world.photonPool) + capacity(world.asteroidPool) + capacity(world.explosionPool)
+         + 3 * (SLOT_WORDS + world.ship.bodies.stride);
+  }
+
+  static int capacity(AsteroidsPool pool) {
+
+    return POOL_WORDS + pool.capacity() * (SLOT_WORDS + 3 + pool.bodies.stride);
+  }
+
+  public int size() {
+
+    // Bytes used by the snapshot.
+
+    return size * 8;
+  }
+
+  public void save(AsteroidsWorld w) {
+
+    long[] d;
+    int n, i;
+
+    // Grow the array if a shape has grown since it was sized (this does not happen with the
+    // shapes the game makes).
+
+    if (data.length < capacity(w))
+      data = new long[capacity(w)];
+    d = data;
+    n = 0;
+
+    d[n++] = w.ticks;
+    d[n++] = w.random.seed;
+    d[n++] = w.random.state;
+    d[n++] = w.score;
+    d[n++] = w.highScore;
+    d[n++] = w.newShipScore;
+    d[n++] = w.newUfoScore;
+    d[n++] = w.ufoKills;
+    d[n++] = w.shipsLeft;
+    d[n++] = w.shipCounter;
+    d[n++] = w.hyperCounter;
+    d[n++] = w.ufoPassesLeft;
+    d[n++] = w.ufoCounter;
+    d[n++] = w.missleCounter;
+    d[n++] = w.asteroidsCounter;
+    d[n++] = w.asteroidsSpeed;
+    d[n++] = w.asteroidsLeft;
+    d[n++] = w.soundEvents;
+    d[n++] = (w.playing ? 1 : 0) | (w.detail ? 2 : 0) | (w.left ? 4 : 0) | (w.right ? 8 : 0)
+           | (w.up ? 16 : 0) | (w.down ? 32 : 0) | (w.thrustersPlaying ? 64 : 0)
+           | (w.saucerPlaying ? 128 : 0) | (w.misslePlaying ? 256 : 0);
+    for (i = 0; i < w.asteroidIsSmall.length; i++)
+      d[n++] = w.asteroidIsSmall[i] ? 1 : 0;
+
+    n = saveSprite(d, n, w.ship);
+    n = saveSprite(d, n, w.ufo);
+    n = saveSprite(d, n, w.missle);
+    n = savePool(d, n, w.photonPool);
+    n = savePool(d, n, w.asteroidPool);
+    n = savePool(d, n, w.explosionPool);
+
+    size = n;
+    tick = w.ticks;
+  }
+
+  public void restore(AsteroidsWorld w) {
+
+    long[] d;
+    long f;
+    int n, i;
+
+    if (tick < 0)
+      throw new IllegalStateException("Empty snapshot");
+    d = data;
+    n = 0;
+
+    w.ticks = d[n++];
+    w.random.seed = d[n++];
+    w.random.state = d[n++];
+    w.score = (int) d[n++];
+    w.highScore = (int) d[n++];
+    w.newShipScore = (int) d[n++];
+    w.newUfoScore = (int) d[n++];
+    w.ufoKills = (int) d[n++];
+    w.shipsLeft = (int) d[n++];
+    w.shipCounter = (int) d[n++];
+    w.hyperCounter = (int) d[n++];
+    w.ufoPassesLeft = (int) d[n++];
+    w.ufoCounter = (int) d[n++];
+    w.missleCounter = (int) d[n++];
+    w.asteroidsCounter = (int) d[n++];
+    w.asteroidsSpeed = (int) d[n++];
+    w.asteroidsLeft = (int) d[n++];
+    w.soundEvents = (int) d[n++];
+    f = d[n++];
+    w.playing = (f & 1) != 0;
+    w.detail = (f & 2) != 0;
+    w.left = (f & 4) != 0;
+    w.right = (f & 8) != 0;
+    w.up = (f & 16) != 0;
+    w.down = (f & 32) != 0;
+    w.thrustersPlaying = (f & 64) != 0;
+    w.saucerPlaying = (f & 128) != 0;
+    w.misslePlaying = (f & 256) != 0;
+    for (i = 0; i < w.asteroidIsSmall.length; i++)
+      w.asteroidIsSmall[i] = d[n++] != 0;
+
+    n = restoreSprite(d, n, w.ship);
+    n = restoreSprite(d, n, w.ufo);
+    n = restoreSprite(d, n, w.missle);
+    n = restorePool(d, n, w.photonPool);
+    n = restorePool(d, n, w.asteroidPool);
+    n = restorePool(d, n, w.explosionPool);
+
+    // The photon grid is rebuilt from the restored photons when it is next needed.
+
+    w.photonsBinned = false;
+  }
+
+  public void write(DataOutput out) throws IOException {
+
+    int i;
+
+    // Write the snapshot out as its tick, its length in words and the words.
+
+    out.writeLong(tick);
+    out.writeInt(size);
+    for (i = 0; i < size; i++)
+      out.writeLong(data[i]);
+  }
+
+  public void read(DataInput in) throws IOException {
+
+    int i, n;
+
+    tick = in.readLong();
+    n = in.readInt();
+    if (n < 0 || n > data.length)
+      throw new IOException("Snapshot does not fit this world");
+    for (i = 0; i < n; i++)
+      data[i] = in.readLong();
+    size = n;
+  }
+
+  static int savePool(long[] d, int n, AsteroidsPool p) {
+
+    int k, i;
+
+    // The live list, free stack and age list are saved in order, so the same slots are handed
+    // out and taken back in the same order after a restore.
+
+    d[n++] = p.count;
+    d[n++] = p.freeCount;
+    d[n++] = p.bodies.stride;
+    for (k = 0; k < p.freeCount; k++)
+      d[n++] = p.free[k];
+    for (k = 0; k < p.count; k++) {
+      i = p.live[k];
+      d[n++] = i;
+      d[n++] = p.counter[i];
+      n = saveSprite(d, n, p.sprites[i]);
+    }
+    for (i = p.oldest; i >= 0; i = p.newer[i])
+      d[n++] = i;
+    return n;
+  }
+
+  static int restorePool(long[] d, int n, AsteroidsPool p) {
+
+    int k, i, stride;
+
+    p.count = (int) d[n++];
+    p.freeCount = (int) d[n++];
+    stride = (int) d[n++];
+    if (stride > p.bodies.stride)
+      p.bodies.growStride(stride);
+    for (i = 0; i < p.capacity(); i++) {
+      p.bodies.active[i] = false;
+      p.liveIndex[i] = -1;
+    }
+    for (k = 0; k < p.freeCount; k++)
+      p.free[k] = (int) d[n++];
+    for (k = 0; k < p.count; k++) {
+      i = (int) d[n++];
+      p.live[k] = i;
+      p.liveIndex[i] = k;
+      p.counter[i] = (int) d[n++];
+      n = restoreSprite(d, n, p.sprites[i]);
+    }
+    p.oldest = p.newest = -1;
+    for (k = 0; k < p.count; k++)
+      p.link((int) d[n++]);
+    return n;
+  }
+
+  static int saveSprite(long[] d, int n, AsteroidsSprite s) {
+
+    AsteroidsBodies b = s.bodies;
+    int i, j, base;
+
+    i = s.slot;
+    d[n++] = b.active[i] ? 1 : 0;
+    d[n++] = Double.doubleToRawLongBits(b.x[i]);
+    d[n++] = Double.doubleToRawLongBits(b.y[i]);
+    d[n++] = Double.doubleToRawLongBits(b.prevX[i]);
+    d[n++] = Double.doubleToRawLongBits(b.prevY[i]);
+    d[n++] = Double.doubleToRawLongBits(b.deltaX[i]);
+    d[n++] = Double.doubleToRawLongBits(b.deltaY[i]);
+    d[n++] = Double.doubleToRawLongBits(b.angle[i]);
+    d[n++] = Double.doubleToRawLongBits(b.deltaAngle[i]);
+    d[n++] = pack(s.lastX, s.lastY);
+    d[n++] = b.points[i];
+    base = i * b.stride;
+    for (j = 0; j < b.points[i]; j++)
+      d[n++] = pack(b.shapeX[base + j], b.shapeY[base + j]);
+    return n;
+  }
+
+  static int restoreSprite(long[] d, int n, AsteroidsSprite s) {
+
+    AsteroidsBodies b = s.bodies;
+    long last;
+    int i, j, base;
+
+    i = s.slot;
+    b.active[i] = d[n++] != 0;
+    b.x[i] = Double.longBitsToDouble(d[n++]);
+    b.y[i] = Double.longBitsToDouble(d[n++]);
+    b.prevX[i] = Double.longBitsToDouble(d[n++]);
+    b.prevY[i] = Double.longBitsToDouble(d[n++]);
+    b.deltaX[i] = Double.longBitsToDouble(d[n++]);
+    b.deltaY[i] = Double.longBitsToDouble(d[n++]);
+    b.angle[i] = Double.longBitsToDouble(d[n++]);
+    b.deltaAngle[i] = Double.longBitsToDouble(d[n++]);
+
+    // Render from where the sprite was last seen, so render() works out the same path for a
+    // swept sprite that it did originally. A sprite that hasn't been rendered since it was
+    // last seen (one not in play) keeps where it was last seen as it is.
+
+    last = d[n++];
+    s.centerX = (int) (last >> 32);
+    s.centerY = (int) last;
+    b.points[i] = (int) d[n++];
+    base = i * b.stride;
+    for (j = 0; j < b.points[i]; j++) {
+      b.shapeX[base + j] = (int) (d[n] >> 32);
+      b.shapeY[base + j] = (int) d[n++];
+    }
+    s.render();
+    s.lastX = (int) (last >> 32);
+    s.lastY = (int) last;
+    return n;
+  }
+
+  static long pack(int x, int y) {
+
+    return ((long) x << 32) | (y & 0xffffffffL);
+  }
+}
@@ -0,0 +1,144 @@
+/************************************************************************************************
+
+AsteroidsTimeline.java
+
+  Steps an AsteroidsWorld while keeping enough of its past to go back to any recent tick. Every
+  so many ticks (the interval) a snapshot of the world is taken as a keyframe, into a ring of
+  snapshots allocated up front, and the input for every tick is kept alongside. Going back to a
+  tick means restoring the last keyframe at or before it and stepping forward with the saved
+  input, never more than one interval of ticks.
+
+  Once the ring is full the oldest keyframe is overwritten, so how far back the timeline
+  reaches is the number of keyframes times the interval. Stepping on from a tick that was gone
+  back to starts a new future, and whatever came after that tick is forgotten.
+
+************************************************************************************************/
+
+package asteroids;
+
+class AsteroidsTimeline {
+
+  // Constants
+
+  static final int INTERVAL  = 100;    // Default ticks between keyframes (5 seconds of play)
+  static final int KEYFRAMES = 120;    // and keyframes kept (10 minutes).
+
+  // Fields:
+
+  AsteroidsWorld      world;
+  int                 interval;
+  AsteroidsSnapshot[] keyframes;     // Ring of keyframes. The newest is at last, the oldest
+  int                 first;         // at first, and count are in use.
+  int                 last;
+  int                 count;
+
+  byte[]              inputs;        // Input for each tick, indexed by tick modulo the length.
+  long                end;           // Tick after the latest one stepped.
+
+  // Constructors:
+
+  public AsteroidsTimeline(AsteroidsWorld world) {
+
+    this(world, INTERVAL, KEYFRAMES);
+  }
+
+  public AsteroidsTimeline(AsteroidsWorld world, int interval, int keyframes) {
+
+    int i;
+
+    this.world = world;
+    this.interval = Math.max(1, interval);
+    this.keyframes = new AsteroidsSnapshot[Math.max(1, keyframes)];
+    for (i = 0; i < this.keyframes.length; i++)
+      this.keyframes[i] = new AsteroidsSnapshot(world);
+    this.inputs = new byte[(this.keyframes.length + 1) * this.interval];
+    this.end = world.ticks;
+    this.count = 0;
+  }
+
+  // Methods:
+
+  public long oldest() {
+
+    // The earliest tick that can be gone back to.
+
+    return count > 0 ? keyframes[first].tick : world.ticks;
+  }
+
+  public long latest() {
+
+    return end;
+  }
+
+  public void step(int input) {
+
+    // Take a keyframe if one is due, then step the world and remember the input. If the world
+    // was sent back in time, its old future is dropped first.
+
+    if (world.ticks < end)
+      truncate();
+    if (world.ticks % interval == 0 || count == 0)
+      keyframe();
+    inputs[(int) (world.ticks % inputs.length)] = (byte) input;
+    world.step(input);
+    end = world.ticks;
+  }
+
+  void keyframe() {
+
+    // Save the world into the next keyframe in the ring, dropping the oldest if it is full.
+
+    if (count > 0 && keyframes[last].tick == world.ticks)
+      return;
+    if (count == 0)
+      last = first;
+    else {
+      last = (last + 1) % keyframes.length;
+      if (count == keyframes.length)
+        first = (first + 1) % keyframes.length;
+    }
+    if (count < keyframes.length)
+      count++;
+    keyframes[last].save(world);
+  }
+
+  public boolean seek(long tick) {
+
+    int k;
+
+    // Put the world back as it was at the start of the given tick. Returns false, leaving the
+    // world alone, if the tick is no longer (or not yet) within reach.
+
+    if (tick < oldest() || tick > end)
+      return false;
+    if (tick == world.ticks)
+      return true;
+
+    // Find the newest keyframe at or before the tick, restore it and play forward from there.
+
+    k = last;
+    while (keyframes[k].tick > tick)
+      k = (k + keyframes.length - 1) % keyframes.length;
+    if (tick < world.ticks || world.ticks < keyframes[k].tick)
+      keyframes[k].restore(world);
+    while (world.ticks < tick)
+      world.step(inputs[(int) (world.ticks % inputs.length)] & 0xff);
+    return true;
+  }
+
+  public boolean rewind(long ticks) {
+
+    return seek(Math.max(oldest(), world.ticks - ticks));
+  }
+
+  public void truncate() {
+
+    // Forget everything after the world's current tick, so stepping can carry on from here.
+
+    while (count > 1 && keyframes[last].tick > world.ticks) {
+      last = (last + keyframes.length - 1) % keyframes.length;
+      count--;
+    }
+    end = world.ticks;
+  }
+}
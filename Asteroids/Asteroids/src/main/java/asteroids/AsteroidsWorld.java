@@ -0,0 +1,1022 @@
+/************************************************************************************************
+
+AsteroidsWorld.java
+
+  The complete state and rules of one game of Asteroids, with no dependency on a display, an
+  applet or sound hardware. The game is advanced one tick at a time by calling step() with the
+  player's input for that tick. Anything that needs to be heard (sound effects) is reported back
+  through flags that the caller may act on or ignore.
+
+  Every random choice the game makes comes from the world's own AsteroidsRandom. A world created
+  with a given seed and stepped with the same input on every tick plays the same game every time.
+
+  Photons, asteroids and debris are updated in two passes. The first moves and renders each one
+  and, for an asteroid, finds whether it touches a photon or the ship. It looks at nothing any
+  other sprite's first pass changes, so it can be shared out among several threads in a world
+  with an AsteroidsParallel. The second pass, always on the thread running the tick, goes
+  through the sprites in order and does whatever changes the game: expiring them, settling
+  hits, scoring. It comes out exactly as it did when each sprite was moved and checked in turn.
+
+************************************************************************************************/
+
+package asteroids;
+
+/************************************************************************************************
+  The AsteroidsWorld class holds the game state and advances it by one tick on each call to
+  step().
+************************************************************************************************/
+
+class AsteroidsWorld {
+
+  // Constants. The rules of the game (ship count, counters, speeds and points) are only the
+  // defaults; each world plays by its own AsteroidsRules.
+
+  static final int MAX_SHIPS = 3;           // Starting number of ships per game.
+
+  static final int MAX_SHOTS =  6;          // Default number of sprites for photons,
+  static final int MAX_ROCKS =  8;          // asteroids and explosions. Each new wave of
+  static final int MAX_SCRAP = 20;          // asteroids fills the asteroid pool.
+
+  static final int SCRAP_COUNT = 30;        // Counter starting values.
+  static final int HYPER_COUNT = 60;
+  static final int STORM_PAUSE = 30;
+  static final int UFO_PASSES  =  3;
+
+  static final int MIN_ROCK_SIDES =  8;     // Asteroid shape and size ranges.
+  static final int MAX_ROCK_SIDES = 12;
+  static final int MIN_ROCK_SIZE  = 20;
+  static final int MAX_ROCK_SIZE  = 40;
+  static final int MIN_ROCK_SPEED =  2;
+  static final int MAX_ROCK_SPEED = 12;
+
+  static final int SHIP_TURNS = 32;         // Headings the ship can face, a turn being pi/16.
+
+  static final int BIG_POINTS    =  25;     // Points for shooting different objects.
+  static final int SMALL_POINTS  =  50;
+  static final int UFO_POINTS    = 250;
+  static final int MISSLE_POINTS = 500;
+
+  static final int NEW_SHIP_POINTS = 5000;  // Number of points needed to earn a new ship.
+  static final int NEW_UFO_POINTS  = 2750;  // Number of points between flying saucers.
+
+  // Input bits passed to step(). The first four are held down, the rest are pulses that fire
+  // once for each key press. Everything the player does that changes the game comes through
+  // these bits, so the input for each tick is all it takes to replay a game.
+
+  static final int LEFT   =   1;
+  static final int RIGHT  =   2;
+  static final int UP     =   4;
+  static final int DOWN   =   8;
+  static final int FIRE   =  16;
+  static final int HYPER  =  32;
+  static final int START  =  64;    // Start a new game, if one is not in progress.
+  static final int DETAIL = 128;    // Toggle graphics detail, which also changes explosions.
+
+  // Sound effect bits raised in soundEvents during a step.
+
+  static final int CRASH_SOUND     = 1;
+  static final int EXPLOSION_SOUND = 2;
+  static final int FIRE_SOUND      = 4;
+  static final int WARP_SOUND      = 8;
+
+  // The first pass of each pool's update, done by move().
+
+  static final int MOVE_PHOTONS    = 0;
+  static final int MOVE_ASTEROIDS  = 1;
+  static final int MOVE_EXPLOSIONS = 2;
+
+  // Dimensions of the playfield.
+
+  int width;
+  int height;
+
+  // Rules the game is played by.
+
+  AsteroidsRules rules;
+
+  // Game data.
+
+  int score;
+  int highScore;
+  int newShipScore;
+  int newUfoScore;
+  int ufoKills;      // Flying saucers shot down this game.
+
+  boolean playing;
+  boolean detail;
+  boolean everyHit;  // Score the saucer and missle for every photon hitting them on a tick.
+
+  // Input for the current tick.
+
+  boolean left;
+  boolean right;
+  boolean up;
+  boolean down;
+
+  // Sprite objects. Photons, asteroids and explosion debris come from pools whose sizes are
+  // set when the world is created. The arrays are the pools' sprites, indexed by slot.
+
+  AsteroidsSprite   ship;
+  AsteroidsSprite   ufo;
+  AsteroidsSprite   missle;
+  AsteroidsPool     photonPool;
+  AsteroidsPool     asteroidPool;
+  AsteroidsPool     explosionPool;
+  AsteroidsSprite[] photons;
+  AsteroidsSprite[] asteroids;
+  AsteroidsSprite[] explosions;
+
+  // Ship data.
+
+  int shipsLeft;       // Number of ships left to play, including current one.
+  int shipCounter;     // Time counter for ship explosion.
+  int hyperCounter;    // Time counter for hyperspace.
+
+  // Photon data.
+
+  int[] photonCounter;    // Time counter for life of a photon.
+
+  // Collision data. Photons are binned in a grid once they have moved, so that each sprite only
+  // has to be tested against the photons near it.
+
+  AsteroidsGrid  photonGrid;
+  boolean        photonsBinned;
+  AsteroidsQuery candidates;
+
+  // What the first pass found for each asteroid: whether it has been through it (one broken off
+  // since hasn't), whether it touches a photon and the ship, and how many collision tests that
+  // took. Then the threads the first pass is shared out among, if there are any.
+
+  boolean[]         asteroidMoved;
+  boolean[]         asteroidHit;
+  boolean[]         asteroidCrash;
+  int[]             asteroidTests;
+  AsteroidsParallel parallel;
+
+  // Flying saucer data.
+
+  int ufoPassesLeft;    // Number of flying saucer passes.
+  int ufoCounter;       // Time counter for each pass.
+
+  // Missle data.
+
+  int missleCounter;    // Counter for life of missle.
+
+  // Asteroid data.
+
+  boolean[] asteroidIsSmall;                             // Asteroid size flag.
+  int       asteroidsCounter;                            // Break-time counter.
+  int       asteroidsSpeed;                              // Asteroid speed.
+  int       asteroidsLeft;                               // Number of active asteroids.
+
+  // Explosion data.
+
+  int[] explosionCounter;  // Time counters for explosions.
+
+  // Sound data. One shot effects are raised in soundEvents for the step that caused them, the
+  // looping effects stay set for as long as they should be heard.
+
+  int     soundEvents;
+  boolean thrustersPlaying;
+  boolean saucerPlaying;
+  boolean misslePlaying;
+
+  // Number of ticks run since the world was created.
+
+  long ticks;
+
+  // Source of every random choice in the game.
+
+  AsteroidsRandom random;
+
+  // Instrumentation. Collision tests (the photons near each sprite, and the ship, that it is
+  // checked against) are counted all the time, each part of a tick is only timed while a
+  // profiler is attached.
+
+  long              collisionTests;
+  AsteroidsProfiler profiler;
+
+  // Constructors:
+
+  public AsteroidsWorld(int width, int height) {
+
+    this(width, height, MAX_SHOTS, MAX_ROCKS, MAX_SCRAP);
+  }
+
+  public AsteroidsWorld(int width, int height, int maxShots, int maxRocks, int maxScrap) {
+
+    this(width, height, maxShots, maxRocks, maxScrap, AsteroidsRandom.newSeed());
+  }
+
+  public AsteroidsWorld(int width, int height, int maxShots, int maxRocks, int maxScrap, long seed) {
+
+    this(width, height, maxShots, maxRocks, maxScrap, seed, new AsteroidsRules());
+  }
+
+  public AsteroidsWorld(int width, int height, int maxShots, int maxRocks, int maxScrap, long seed, AsteroidsRules rules) {
+
+    int i;
+
+    this.rules = rules;
+    this.random = new AsteroidsRandom(seed);
+    this.width = width;
+    this.height = height;
+
+    // Create the sprite pools.
+
+    photonPool = new AsteroidsPool(maxShots, 4, width, height);
+    asteroidPool = new AsteroidsPool(maxRocks, MAX_ROCK_SIDES, width, height);
+    explosionPool = new AsteroidsPool(maxScrap, 2, width, height);
+    photons = photonPool.sprites;
+    asteroids = asteroidPool.sprites;
+    explosions = explosionPool.sprites;
+    photonCounter = photonPool.counter;
+    explosionCounter = explosionPool.counter;
+    asteroidIsSmall = new boolean[maxRocks];
+    photonGrid = new AsteroidsGrid(width, height, 2 * MAX_ROCK_SIZE);
+    candidates = new AsteroidsQuery();
+    asteroidMoved = new boolean[maxRocks];
+    asteroidHit = new boolean[maxRocks];
+    asteroidCrash = new boolean[maxRocks];
+    asteroidTests = new int[maxRocks];
+
+    // Create shape for the ship sprite.
+
+    ship = new AsteroidsSprite(width, height);
+    ship.addPoint(0, -10);
+    ship.addPoint(7, 10);
+    ship.addPoint(-7, 10);
+    ship.turns = new AsteroidsRotation(ship, SHIP_TURNS);
+
+    // Create shape for the photon sprites.
+
+    for (i = 0; i < photons.length; i++) {
+      photons[i].swept = true;
+      photons[i].addPoint(1, 1);
+      photons[i].addPoint(1, -1);
+      photons[i].addPoint(-1, 1);
+      photons[i].addPoint(-1, -1);
+    }
+
+    // Create shape for the flying saucer.
+
+    ufo = new AsteroidsSprite(width, height);
+    ufo.addPoint(-15, 0);
+    ufo.addPoint(-10, -5);
+    ufo.addPoint(-5, -5);
+    ufo.addPoint(-5, -9);
+    ufo.addPoint(5, -9);
+    ufo.addPoint(5, -5);
+    ufo.addPoint(10, -5);
+    ufo.addPoint(15, 0);
+    ufo.addPoint(10, 5);
+    ufo.addPoint(-10, 5);
+
+    // Create shape for the guided missle.
+
+    missle = new AsteroidsSprite(width, height);
+    missle.addPoint(0, -4);
+    missle.addPoint(1, -3);
+    missle.addPoint(1, 3);
+    missle.addPoint(2, 4);
+    missle.addPoint(-2, 4);
+    missle.addPoint(-1, 3);
+    missle.addPoint(-1, -3);
+
+    // Initialize game data and put us in 'game over' mode.
+
+    highScore = 0;
+    detail = true;
+    initGame();
+    endGame();
+  }
+
+  // Methods:
+
+  public void setExactRotation(boolean exact) {
+
+    // Rotate every sprite by Math.cos() and sin() instead of the table, to replay a game
+    // recorded before the table was used (see AsteroidsRecorder).
+
+    photonPool.bodies.exact = exact;
+    asteroidPool.bodies.exact = exact;
+    explosionPool.bodies.exact = exact;
+    ship.bodies.exact = exact;
+    ufo.bodies.exact = exact;
+    missle.bodies.exact = exact;
+  }
+
+  public void setEveryHit(boolean everyHit) {
+
+    // Have every photon that hits the saucer or missle on one tick score it and blow it up
+    // again, as the original game did, to replay a game recorded before version 3 (see
+    // AsteroidsRecorder).
+
+    this.everyHit = everyHit;
+  }
+
+  public void initGame() {
+
+    // Initialize game data and sprites.
+
+    score = 0;
+    ufoKills = 0;
+    shipsLeft = rules.maxShips;
+    asteroidsSpeed = rules.minRockSpeed;
+    newShipScore = rules.newShipPoints;
+    newUfoScore = rules.newUfoPoints;
+    initShip();
+    initPhotons();
+    stopUfo();
+    stopMissle();
+    initAsteroids();
+    initExplosions();
+    playing = true;
+  }
+
+  public void endGame() {
+
+    // Stop ship, flying saucer and guided missle.
+
+    playing = false;
+    stopShip();
+    stopUfo();
+    stopMissle();
+  }
+
+  public void step(int input) {
+
+    // Run one tick of the game with the given input bits.
+
+    if (profiler != null)
+      profiler.startTick();
+    soundEvents = 0;
+    if ((input & START) != 0 && !playing)
+      initGame();
+    if ((input & DETAIL) != 0)
+      detail = !detail;
+    left  = (input & LEFT) != 0;
+    right = (input & RIGHT) != 0;
+    up    = (input & UP) != 0;
+    down  = (input & DOWN) != 0;
+    if ((input & FIRE) != 0)
+      firePhoton();
+    if ((input & HYPER) != 0)
+      hyperspace();
+
+    // Move and process all sprites.
+
+    if (profiler != null)
+      profiler.update(this);
+    else {
+      updateShip();
+      updatePhotons();
+      updateUfo();
+      updateMissle();
+      updateAsteroids();
+      updateExplosions();
+    }
+
+    // Check the score and advance high score, add a new ship or start the flying
+    // saucer as necessary.
+
+    if (score > highScore)
+      highScore = score;
+    if (score > newShipScore) {
+      newShipScore += rules.newShipPoints;
+      shipsLeft++;
+    }
+    if (playing && score > newUfoScore && !ufo.isActive()) {
+      newUfoScore += rules.newUfoPoints;
+      ufoPassesLeft = rules.ufoPasses;
+      initUfo();
+    }
+
+    // If all asteroids have been destroyed create a new batch.
+
+    if (asteroidsLeft <= 0)
+        if (--asteroidsCounter <= 0)
+          initAsteroids();
+
+    // The thrusters are heard for as long as the ship is under power.
+
+    thrustersPlaying = ship.isActive() && (up || down);
+
+    ticks++;
+    if (profiler != null)
+      profiler.endTick(this);
+  }
+
+  public void initShip() {
+
+    ship.setActive(true);
+    ship.setAngle(0.0);
+    ship.setDeltaAngle(0.0);
+    ship.setX(0.0);
+    ship.setY(0.0);
+    ship.setDeltaX(0.0);
+    ship.setDeltaY(0.0);
+    ship.render();
+    thrustersPlaying = false;
+
+    hyperCounter = 0;
+  }
+
+  public void updateShip() {
+
+    double dx, dy, limit;
+
+    if (!playing)
+      return;
+
+    // Rotate the ship if left or right cursor key is down.
+
+    if (left) {
+      ship.setAngle(ship.getAngle() + Math.PI / 16.0);
+      if (ship.getAngle() > 2 * Math.PI)
+        ship.setAngle(ship.getAngle() - 2 * Math.PI);
+    }
+    if (right) {
+      ship.setAngle(ship.getAngle() - Math.PI / 16.0);
+      if (ship.getAngle() < 0)
+        ship.setAngle(ship.getAngle() + 2 * Math.PI);
+    }
+
+    // Fire thrusters if up or down cursor key is down. Don't let ship go past
+    // the speed limit.
+
+    dx = -Math.sin(ship.getAngle());
+    dy =  Math.cos(ship.getAngle());
+    limit = 0.8 * MIN_ROCK_SIZE;
+    if (up) {
+      if (ship.getDeltaX() + dx > -limit && ship.getDeltaX() + dx < limit)
+        ship.setDeltaX(ship.getDeltaX() + dx);
+      if (ship.getDeltaY() + dy > -limit && ship.getDeltaY() + dy < limit)
+        ship.setDeltaY(ship.getDeltaY() + dy);
+    }
+    if (down) {
+      if (ship.getDeltaX() - dx > -limit && ship.getDeltaX() - dx < limit)
+        ship.setDeltaX(ship.getDeltaX() - dx);
+      if (ship.getDeltaY() - dy > -limit && ship.getDeltaY() - dy < limit)
+        ship.setDeltaY(ship.getDeltaY() - dy);
+    }
+
+    // Move the ship. If it is currently in hyperspace, advance the countdown.
+
+    if (ship.isActive()) {
+      ship.advance();
+      ship.render();
+      if (hyperCounter > 0)
+        hyperCounter--;
+    }
+
+    // Ship is exploding, advance the countdown or create a new ship if it is
+    // done exploding. The new ship is added as though it were in hyperspace.
+    // (This gives the player time to move the ship if it is in imminent danger.)
+    // If that was the last ship, end the game.
+
+    else
+      if (--shipCounter <= 0)
+        if (shipsLeft > 0) {
+          initShip();
+          hyperCounter = rules.hyperCount;
+        }
+        else
+          endGame();
+  }
+
+  public void stopShip() {
+
+    ship.setActive(false);
+    shipCounter = rules.scrapCount;
+    if (shipsLeft > 0)
+      shipsLeft--;
+    thrustersPlaying = false;
+  }
+
+  public void hyperspace() {
+
+    // Warp ship into hyperspace by moving to a random location and starting counter.
+
+    if (ship.isActive() && hyperCounter <= 0) {
+      ship.setX(random.nextDouble() * width);
+      ship.setX(random.nextDouble() * height);
+      hyperCounter = rules.hyperCount;
+      soundEvents |= WARP_SOUND;
+    }
+  }
+
+  public void initPhotons() {
+
+    photonPool.clear();
+  }
+
+  public void firePhoton() {
+
+    int i;
+
+    // Fire a photon from the ship and start its counter. If all the photons are in flight, the
+    // one with the least time left is taken back.
+
+    if (!ship.isActive())
+      return;
+    i = photonPool.recycle();
+    if (i < 0)
+      return;
+    soundEvents |= FIRE_SOUND;
+    photons[i].setX(ship.getX());
+    photons[i].setY(ship.getY());
+    photons[i].setDeltaX(MIN_ROCK_SIZE * -Math.sin(ship.getAngle()));
+    photons[i].setDeltaY(MIN_ROCK_SIZE *  Math.cos(ship.getAngle()));
+    photonCounter[i] = Math.min(width, height) / MIN_ROCK_SIZE;
+    photons[i].render();
+    photons[i].startSweep();
+    photonsBinned = false;
+  }
+
+  public void updatePhotons() {
+
+    int i, k;
+
+    // Move any active photons. Stop it when its counter has expired.
+
+    pass(MOVE_PHOTONS, photonPool.count);
+    for (k = 0; k < photonPool.count; ) {
+      i = photonPool.live[k];
+      if (--photonCounter[i] < 0)
+        photonPool.despawn(i);
+      else
+        k++;
+    }
+    photonsBinned = false;
+  }
+
+  public void binPhotons() {
+
+    int i, k;
+
+    // Rebuild the photon grid if any photon has moved or been fired since it was last built.
+    // Photons that are stopped afterwards stay in the grid, so their active flag must still be
+    // checked.
+
+    if (photonsBinned)
+      return;
+    photonGrid.clear();
+    for (k = 0; k < photonPool.count; k++) {
+      i = photonPool.live[k];
+      photonGrid.add(i, photons[i]);
+    }
+    photonsBinned = true;
+  }
+
+  public void initUfo() {
+
+    // Randomly set flying saucer at left or right edge of the screen.
+
+    ufo.setActive(true);
+    ufo.setX(-width / 2);
+    ufo.setY(random.nextDouble() * height);
+    ufo.setDeltaX(rules.minRockSpeed + random.nextDouble() * (rules.maxRockSpeed - rules.minRockSpeed));
+    if (random.nextDouble() < 0.5) {
+      ufo.setDeltaX(-ufo.getDeltaX());
+      ufo.setX(width / 2);
+    }
+    ufo.setDeltaY(rules.minRockSpeed + random.nextDouble() * (rules.maxRockSpeed - rules.minRockSpeed));
+    if (random.nextDouble() < 0.5)
+      ufo.setDeltaY(-ufo.getDeltaY());
+    ufo.render();
+    saucerPlaying = true;
+
+    // Set counter for this pass.
+
+    ufoCounter = (int) Math.floor(width / Math.abs(ufo.getDeltaX()));
+  }
+
+  public void updateUfo() {
+
+    int i, j, n, d;
+
+    // Move the flying saucer and check for collision with a photon. Stop it when its
+    // counter has expired. Only the first photon to hit it scores, since it is gone after that
+    // (unless every hit is to score, see setEveryHit()).
+
+    if (ufo.isActive()) {
+      ufo.advance();
+      ufo.render();
+      if (--ufoCounter <= 0)
+        if (--ufoPassesLeft > 0)
+          initUfo();
+        else
+          stopUfo();
+      else {
+        binPhotons();
+        n = photonGrid.query(ufo, candidates);
+        collisionTests += n;
+        for (j = 0; j < n && (ufo.isActive() || everyHit); j++) {
+          i = candidates.items[j];
+          if (photons[i].isActive() && ufo.isColliding(photons[i])) {
+            soundEvents |= CRASH_SOUND;
+            explode(ufo);
+            stopUfo();
+            score += rules.ufoPoints;
+            ufoKills++;
+          }
+        }
+
+          // On occassion, fire a missle at the ship if the saucer is not
+          // too close to it.
+
+          d = (int) Math.max(Math.abs(ufo.getX() - ship.getX()), Math.abs(ufo.getY() - ship.getY()));
+          if (ship.isActive() && hyperCounter <= 0 && ufo.isActive() && !missle.isActive() &&
+              d > 4 * MAX_ROCK_SIZE && random.nextDouble() < .03)
+            initMissle();
+       }
+    }
+  }
+
+  public void stopUfo() {
+
+    ufo.setActive(false);
+    ufoCounter = 0;
+    ufoPassesLeft = 0;
+    saucerPlaying = false;
+  }
+
+  public void initMissle() {
+
+    missle.setActive(true);
+    missle.setAngle(0.0);
+    missle.setDeltaAngle(0.0);
+    missle.setX(ufo.getX());
+    missle.setY(ufo.getY());
+    missle.setDeltaX(0.0);
+    missle.setDeltaY(0.0);
+    missle.render();
+    missleCounter = 3 * Math.max(width, height) / MIN_ROCK_SIZE;
+    misslePlaying = true;
+  }
+
+  public void updateMissle() {
+
+    int i, j, n;
+
+    // Move the guided missle and check for collision with ship or photon. Stop it when its
+    // counter has expired. As with the saucer, only the first photon to hit it scores.
+
+    if (missle.isActive()) {
+      if (--missleCounter <= 0)
+        stopMissle();
+      else {
+        guideMissle();
+        missle.advance();
+        missle.render();
+        binPhotons();
+        n = photonGrid.query(missle, candidates);
+        collisionTests += n + 1;
+        for (j = 0; j < n && (missle.isActive() || everyHit); j++) {
+          i = candidates.items[j];
+          if (photons[i].isActive() && missle.isColliding(photons[i])) {
+            soundEvents |= CRASH_SOUND;
+            explode(missle);
+            stopMissle();
+            score += rules.misslePoints;
+          }
+        }
+        if (missle.isActive() && ship.isActive() && hyperCounter <= 0 && ship.isColliding(missle)) {
+          soundEvents |= CRASH_SOUND;
+          explode(ship);
+          stopShip();
+          stopUfo();
+          stopMissle();
+        }
+      }
+    }
+  }
+
+  public void guideMissle() {
+
+    double dx, dy, angle;
+
+    if (!ship.isActive() || hyperCounter > 0)
+      return;
+
+    // Find the angle needed to hit the ship.
+
+    dx = ship.getX() - missle.getX();
+    dy = ship.getY() - missle.getY();
+    if (dx == 0 && dy == 0)
+      angle = 0;
+    if (dx == 0) {
+      if (dy < 0)
+        angle = -Math.PI / 2;
+      else
+        angle = Math.PI / 2;
+    }
+    else {
+      angle = Math.atan(Math.abs(dy / dx));
+      if (dy > 0)
+        angle = -angle;
+      if (dx < 0)
+        angle = Math.PI - angle;
+    }
+
+    // Adjust angle for screen coordinates.
+
+    missle.setAngle(angle - Math.PI / 2);
+
+    // Change the missle's angle so that it points toward the ship.
+
+    missle.setDeltaX(MIN_ROCK_SIZE / 3 * -Math.sin(missle.getAngle()));
+    missle.setDeltaY(MIN_ROCK_SIZE / 3 *  Math.cos(missle.getAngle()));
+  }
+
+  public void stopMissle() {
+
+    missle.setActive(false);
+    missleCounter = 0;
+    misslePlaying = false;
+  }
+
+  public void initAsteroids() {
+
+    int i, j;
+    int s;
+    double theta, r;
+    int x, y;
+
+    // Create random shapes, positions and movements for a full pool of asteroids.
+
+    asteroidPool.clear();
+    while ((i = asteroidPool.spawn()) >= 0) {
+
+      // Create a jagged shape for the asteroid and give it a random rotation.
+
+      asteroids[i].resetShape();
+      s = MIN_ROCK_SIDES + (int) (random.nextDouble() * (MAX_ROCK_SIDES - MIN_ROCK_SIDES));
+      for (j = 0; j < s; j ++) {
+        theta = 2 * Math.PI / s * j;
+        r = MIN_ROCK_SIZE + (int) (random.nextDouble() * (MAX_ROCK_SIZE - MIN_ROCK_SIZE));
+        x = (int) -Math.round(r * Math.sin(theta));
+        y = (int)  Math.round(r * Math.cos(theta));
+        asteroids[i].addPoint(x, y);
+      }
+      asteroids[i].setAngle(0.0);
+      asteroids[i].setDeltaAngle((random.nextDouble() - 0.5) / 10);
+
+      // Place the asteroid at one edge of the screen.
+
+      if (random.nextDouble() < 0.5) {
+        asteroids[i].setX(-width / 2);
+        if (random.nextDouble() < 0.5)
+          asteroids[i].setX(width / 2);
+        asteroids[i].setY(random.nextDouble() * height);
+      }
+      else {
+        asteroids[i].setX(random.nextDouble() * width);
+        asteroids[i].setY(-height / 2);
+        if (random.nextDouble() < 0.5)
+          asteroids[i].setY(height / 2);
+      }
+
+      // Set a random motion for the asteroid.
+
+      asteroids[i].setDeltaX(random.nextDouble() * asteroidsSpeed);
+      if (random.nextDouble() < 0.5)
+        asteroids[i].setDeltaX(-asteroids[i].getDeltaX());
+      asteroids[i].setDeltaY(random.nextDouble() * asteroidsSpeed);
+      if (random.nextDouble() < 0.5)
+        asteroids[i].setDeltaY(-asteroids[i].getDeltaY());
+
+      asteroids[i].render();
+      asteroidIsSmall[i] = false;
+    }
+
+    asteroidsCounter = rules.stormPause;
+    asteroidsLeft = asteroidPool.count;
+    if (asteroidsSpeed < rules.maxRockSpeed)
+      asteroidsSpeed++;
+  }
+
+  public void initSmallAsteroids(int n) {
+
+    int count;
+    int i, j;
+    int s;
+    double tempX, tempY;
+    double theta, r;
+    int x, y;
+
+    // Create one or two smaller asteroids from a larger one using inactive asteroids. The new
+    // asteroids will be placed in the same position as the old one but will have a new, smaller
+    // shape and new, randomly generated movements.
+
+    count = 0;
+    tempX = asteroids[n].getX();
+    tempY = asteroids[n].getY();
+    while (count < 2 && (i = asteroidPool.spawn()) >= 0) {
+      asteroids[i].resetShape();
+      s = MIN_ROCK_SIDES + (int) (random.nextDouble() * (MAX_ROCK_SIDES - MIN_ROCK_SIDES));
+      for (j = 0; j < s; j ++) {
+        theta = 2 * Math.PI / s * j;
+        r = (MIN_ROCK_SIZE + (int) (random.nextDouble() * (MAX_ROCK_SIZE - MIN_ROCK_SIZE))) / 2;
+        x = (int) -Math.round(r * Math.sin(theta));
+        y = (int)  Math.round(r * Math.cos(theta));
+        asteroids[i].addPoint(x, y);
+      }
+      asteroids[i].setAngle(0.0);
+      asteroids[i].setDeltaAngle((random.nextDouble() - 0.5) / 10);
+      asteroids[i].setX(tempX);
+      asteroids[i].setY(tempY);
+      asteroids[i].setDeltaX(random.nextDouble() * 2 * asteroidsSpeed - asteroidsSpeed);
+      asteroids[i].setDeltaY(random.nextDouble() * 2 * asteroidsSpeed - asteroidsSpeed);
+      asteroids[i].render();
+      asteroidIsSmall[i] = true;
+      count++;
+      asteroidsLeft++;
+    }
+  }
+
+  public void updateAsteroids() {
+
+    int i, j, k, m, n, c;
+    boolean hit;
+
+    // Move and render all the active asteroids, and find which of them touch a photon or the
+    // ship.
+
+    binPhotons();
+    pass(MOVE_ASTEROIDS, asteroidPool.count);
+
+    // Then settle what happens to each in turn.
+
+    for (m = 0; m < asteroidPool.count; ) {
+      i = asteroidPool.live[m];
+      hit = false;
+      if (!asteroidMoved[i])
+        check(i, candidates);
+      collisionTests += asteroidTests[i];
+
+      // If hit by photon, kill asteroid and advance score. If asteroid is large,
+      // make some smaller ones to replace it. An asteroid that touched a photon can find it
+      // used up by one before it, so the photons are gone through again here.
+
+      if (asteroidHit[i]) {
+        n = photonGrid.query(asteroids[i], candidates);
+        for (k = 0; k < n; k++) {
+          j = candidates.items[k];
+          if (photons[j].isActive() && asteroids[i].isActive() && asteroids[i].isColliding(photons[j])) {
+            asteroidsLeft--;
+            asteroidPool.despawn(i);
+            photonPool.despawn(j);
+            hit = true;
+            soundEvents |= EXPLOSION_SOUND;
+            explode(asteroids[i]);
+            if (!asteroidIsSmall[i]) {
+              score += rules.bigPoints;
+
+              // The new asteroids are added to the end of the list and will be rendered and
+              // checked when the loop reaches them, but they missed the move above.
+
+              c = asteroidPool.count;
+              initSmallAsteroids(i);
+              asteroidPool.bodies.advance(asteroidPool.live, c, asteroidPool.count);
+              for (; c < asteroidPool.count; c++)
+                asteroidMoved[asteroidPool.live[c]] = false;
+            }
+            else
+              score += rules.smallPoints;
+          }
+        }
+      }
+
+      // If the ship is not in hyperspace, see if it is hit. The asteroid's slot may just have
+      // been taken by one broken off it, which is checked as it is now.
+
+      if (ship.isActive() && hyperCounter <= 0 && asteroids[i].isActive() &&
+          (asteroidMoved[i] ? asteroidCrash[i] : asteroids[i].isColliding(ship))) {
+        soundEvents |= CRASH_SOUND;
+        explode(ship);
+        stopShip();
+        stopUfo();
+        stopMissle();
+      }
+
+      // A destroyed asteroid's place in the list has been taken by another one.
+
+      if (!hit)
+        m++;
+    }
+  }
+
+  void pass(int job, int count) {
+
+    // Do the first pass of an update for the first count live sprites, on the world's threads
+    // if it has them.
+
+    if (parallel != null)
+      parallel.run(this, job, count);
+    else
+      move(job, 0, count, candidates);
+  }
+
+  void move(int job, int from, int to, AsteroidsQuery candidates) {
+
+    int k;
+
+    // Move and render the live sprites from one place in the list up to another. This is all
+    // the first pass does, so it may be done for different parts of the list at once.
+
+    if (job == MOVE_PHOTONS) {
+      photonPool.bodies.advance(photonPool.live, from, to);
+      for (k = from; k < to; k++)
+        photons[photonPool.live[k]].render();
+    }
+    else if (job == MOVE_ASTEROIDS) {
+      asteroidPool.bodies.advance(asteroidPool.live, from, to);
+      for (k = from; k < to; k++)
+        check(asteroidPool.live[k], candidates);
+    }
+    else if (job == MOVE_EXPLOSIONS) {
+      explosionPool.bodies.advance(explosionPool.live, from, to);
+      for (k = from; k < to; k++)
+        explosions[explosionPool.live[k]].render();
+    }
+  }
+
+  void check(int i, AsteroidsQuery candidates) {
+
+    int j, k, n;
+
+    // Render an asteroid and find whether it touches any photon or the ship. Photons are only
+    // ever used up and the ship only ever stopped while the asteroids are settled, so one it
+    // doesn't touch now it can't hit then.
+
+    asteroids[i].render();
+    n = photonGrid.query(asteroids[i], candidates);
+    asteroidTests[i] = n + 1;
+    asteroidHit[i] = false;
+    for (k = 0; k < n && !asteroidHit[i]; k++) {
+      j = candidates.items[k];
+      asteroidHit[i] = photons[j].isActive() && asteroids[i].isColliding(photons[j]);
+    }
+    asteroidCrash[i] = ship.isActive() && hyperCounter <= 0 && asteroids[i].isColliding(ship);
+    asteroidMoved[i] = true;
+  }
+
+  public void initExplosions() {
+
+    int i;
+
+    explosionPool.clear();
+    for (i = 0; i < explosions.length; i++)
+      explosions[i].resetShape();
+  }
+
+  public void explode(AsteroidsSprite s) {
+
+    int c, i, j, k;
+
+    // Create sprites for explosion animation. The each individual line segment of the given sprite
+    // is used to create a new sprite that will move outward  from the sprite's original position
+    // with a random rotation. If the pool runs out, the oldest debris is taken back.
+
+    s.render();
+    c = 2;
+    if (detail || s.sprite.npoints < 6)
+      c = 1;
+    for (i = 0; i < s.sprite.npoints; i += c) {
+      k = explosionPool.recycle();
+      if (k < 0)
+        return;
+      explosions[k].resetShape();
+      explosions[k].addPoint(s.getShapeX(i), s.getShapeY(i));
+      j = i + 1;
+      if (j >= s.sprite.npoints)
+        j -= s.sprite.npoints;
+      explosions[k].addPoint(s.getShapeX(j), s.getShapeY(j));
+      explosions[k].setAngle(s.getAngle());
+      explosions[k].setDeltaAngle((random.nextDouble() * 2 * Math.PI - Math.PI) / 15);
+      explosions[k].setX(s.getX());
+      explosions[k].setY(s.getY());
+      explosions[k].setDeltaX(-s.getShapeX(i) / 5);
+      explosions[k].setDeltaY(-s.getShapeY(i) / 5);
+      explosionCounter[k] = rules.scrapCount;
+    }
+  }
+
+  public void updateExplosions() {
+
+    int i, k;
+
+    // Move any active explosion debris. Stop explosion when its counter has expired.
+
+    pass(MOVE_EXPLOSIONS, explosionPool.count);
+    for (k = 0; k < explosionPool.count; ) {
+      i = explosionPool.live[k];
+      if (--explosionCounter[i] < 0)
+        explosionPool.despawn(i);
+      else
+        k++;
+    }
+  }
+}
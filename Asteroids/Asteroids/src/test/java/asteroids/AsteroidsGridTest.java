@@ -0,0 +1,169 @@
+/************************************************************************************************
+
+AsteroidsGridTest.java
+
+  Checks the collision grid against brute force: a query must return exactly the items whose
+  bounding boxes touch the sprite's, in ascending order, so every pair the exact test would find
+  by looking at all of them is still found. The sprites are scattered at random over and past
+  the edges of the playfield, some of them larger than a cell and some swept like photons.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AsteroidsGridTest {
+
+  // Constants
+
+  static final int WIDTH  = 640;
+  static final int HEIGHT = 480;
+  static final int CELL   = 2 * AsteroidsWorld.MAX_ROCK_SIZE;
+
+  // Methods:
+
+  static AsteroidsSprite[] scatter(Random random, int n, int size) {
+
+    AsteroidsSprite[] s;
+    double a, r;
+    int i, j, sides;
+
+    // Make n sprites with random outlines up to size pixels across, at random positions (a
+    // little past the edges too) and angles. Every fourth one is swept, as a photon is.
+
+    s = new AsteroidsSprite[n];
+    for (i = 0; i < n; i++) {
+      s[i] = new AsteroidsSprite(WIDTH, HEIGHT);
+      sides = 3 + random.nextInt(6);
+      for (j = 0; j < sides; j++) {
+        a = 2 * Math.PI * j / sides;
+        r = 1 + random.nextInt(Math.max(1, size / 2));
+        s[i].addPoint((int) Math.round(r * Math.sin(a)), (int) Math.round(-r * Math.cos(a)));
+      }
+      s[i].setActive(true);
+      s[i].setX(random.nextInt(WIDTH + 2 * size) - WIDTH / 2 - size);
+      s[i].setY(random.nextInt(HEIGHT + 2 * size) - HEIGHT / 2 - size);
+      s[i].setAngle(random.nextDouble() * 2 * Math.PI);
+      s[i].render();
+      if (i % 4 == 3) {
+        s[i].swept = true;
+        s[i].startSweep();
+        s[i].setX(s[i].getX() + random.nextInt(2 * size + 1) - size);
+        s[i].setY(s[i].getY() + random.nextInt(2 * size + 1) - size);
+        s[i].render();
+      }
+    }
+    return s;
+  }
+
+  static AsteroidsGrid bin(AsteroidsSprite[] items) {
+
+    AsteroidsGrid grid;
+    int i;
+
+    grid = new AsteroidsGrid(WIDTH, HEIGHT, CELL);
+    for (i = 0; i < items.length; i++)
+      grid.add(i, items[i]);
+    return grid;
+  }
+
+  static boolean boxesTouch(AsteroidsSprite a, AsteroidsSprite b) {
+
+    return a.minX <= b.maxX && b.minX <= a.maxX && a.minY <= b.maxY && b.minY <= a.maxY;
+  }
+
+  @Test
+  public void queryReturnsTouchingBoxesInOrder() {
+
+    Random random = new Random(1);
+    AsteroidsSprite[] items, probes;
+    AsteroidsGrid grid;
+    AsteroidsQuery q;
+    int i, j, k, n, size;
+
+    // One query object is used throughout, so stale marks from earlier queries would show.
+
+    q = new AsteroidsQuery();
+    for (size = 4; size <= 4 * CELL; size *= 2) {
+      items = scatter(random, 300, size);
+      probes = scatter(random, 200, size);
+      grid = bin(items);
+      for (i = 0; i < probes.length; i++) {
+        n = grid.query(probes[i], q);
+        k = 0;
+        for (j = 0; j < items.length; j++)
+          if (boxesTouch(probes[i], items[j])) {
+            assertTrue("size " + size + ", probe " + i + " missed item " + j, k < n);
+            assertEquals("size " + size + ", probe " + i, j, q.items[k++]);
+          }
+        assertEquals("size " + size + ", probe " + i, k, n);
+      }
+    }
+  }
+
+  @Test
+  public void queryFindsEveryCollidingPair() {
+
+    Random random = new Random(2);
+    AsteroidsSprite[] items, probes;
+    AsteroidsGrid grid;
+    AsteroidsQuery q;
+    int i, j, k, n, pairs, found;
+
+    // The pairs found by the exact test over the grid's candidates are the pairs found by the
+    // exact test over every item.
+
+    q = new AsteroidsQuery();
+    items = scatter(random, 400, AsteroidsWorld.MAX_ROCK_SIZE);
+    probes = scatter(random, 400, AsteroidsWorld.MAX_ROCK_SIZE);
+    grid = bin(items);
+    pairs = found = 0;
+    for (i = 0; i < probes.length; i++) {
+      n = grid.query(probes[i], q);
+      k = 0;
+      for (j = 0; j < items.length; j++) {
+        while (k < n && q.items[k] < j)
+          k++;
+        if (probes[i].isColliding(items[j])) {
+          pairs++;
+          assertTrue("probe " + i + " and item " + j + " collide", k < n && q.items[k] == j);
+        }
+      }
+      for (k = 0; k < n; k++)
+        if (probes[i].isColliding(items[q.items[k]]))
+          found++;
+    }
+    assertTrue(pairs > 0);
+    assertEquals(pairs, found);
+  }
+
+  @Test
+  public void queryNumberWrapsAround() {
+
+    Random random = new Random(3);
+    AsteroidsSprite[] items;
+    AsteroidsGrid grid;
+    AsteroidsQuery q, fresh;
+    int i, j, n;
+
+    // Queries go on finding the same items when the query count runs past the largest int.
+
+    items = scatter(random, 200, CELL);
+    grid = bin(items);
+    q = new AsteroidsQuery();
+    fresh = new AsteroidsQuery();
+    grid.query(items[0], q);
+    q.queries = -3;
+    for (i = 0; i < items.length; i++) {
+      n = grid.query(items[i], q);
+      assertEquals(grid.query(items[i], fresh), n);
+      for (j = 0; j < n; j++)
+        assertEquals(fresh.items[j], q.items[j]);
+    }
+  }
+}
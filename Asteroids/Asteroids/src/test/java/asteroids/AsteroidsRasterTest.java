@@ -0,0 +1,114 @@
+/************************************************************************************************
+
+AsteroidsRasterTest.java
+
+  Checks that the software raster draws exactly the pixels Java 2D does. Two renderers paint
+  the same game with the same stars, one through Java 2D and one with a raster, and every
+  frame must come out the same, with detail on and off, between ticks as well as on them, on
+  one thread or several, drawing into its own image or straight into the frame, and in dirty
+  rectangle mode.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AsteroidsRasterTest {
+
+  // Constants
+
+  static final int FRAMES = 600;
+
+  // Methods:
+
+  static int[] pixels(BufferedImage image) {
+
+    return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+  }
+
+  static void compare(int width, int height, int rocks, int threads, boolean target, boolean dirty) {
+
+    AsteroidsWorld world;
+    AsteroidsRenderer plain, soft;
+    AsteroidsPilot pilot;
+    BufferedImage expected, frame, screen;
+    Graphics g, frameGraphics, screenGraphics;
+    int[] a, b;
+    int f, k;
+
+    // Play the game with the aim pilot, painting each frame both ways and comparing them. In
+    // dirty rectangle mode the raster's frame is copied to a screen image the way the applet
+    // copies it, and it is the screen that is compared.
+
+    world = new AsteroidsWorld(width, height, AsteroidsWorld.MAX_SHOTS, rocks, 200, 7);
+    plain = new AsteroidsRenderer(world);
+    soft = new AsteroidsRenderer(world);
+    soft.stars = plain.stars;
+    soft.numStars = plain.numStars;
+    soft.raster = new AsteroidsRaster(threads);
+    if (dirty)
+      soft.dirty = new AsteroidsDirty();
+    expected = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    if (target)
+      soft.raster.setTarget(frame);
+    g = expected.getGraphics();
+    frameGraphics = frame.getGraphics();
+    screenGraphics = screen.getGraphics();
+    pilot = new AsteroidsAimPilot();
+    try {
+      for (f = 0; f < FRAMES; f++) {
+        if (!world.playing)
+          world.initGame();
+        world.step(pilot.input(world));
+        world.detail = f / 150 % 2 == 0;
+        plain.alpha = soft.alpha = f % 3 / 2.0;
+        plain.paint(g, width, height);
+        soft.paint(frameGraphics, width, height);
+        if (dirty)
+          soft.dirty.copy(frame, screenGraphics, null);
+        a = pixels(expected);
+        b = pixels(dirty ? screen : frame);
+        for (k = 0; k < a.length; k++)
+          if (a[k] != b[k])
+            fail("frame " + f + " differs at " + k % width + ", " + k / width + ": "
+                 + Integer.toHexString(a[k]) + " drawn " + Integer.toHexString(b[k]));
+      }
+    }
+    finally {
+      soft.raster.shutdown();
+    }
+  }
+
+  @Test
+  public void oneThreadMatchesJava2D() {
+
+    compare(640, 480, 64, 1, false, false);
+  }
+
+  @Test
+  public void tilesOnSeveralThreadsMatchJava2D() {
+
+    compare(1100, 700, 512, 3, false, false);
+  }
+
+  @Test
+  public void drawingIntoTheFrameMatchesJava2D() {
+
+    compare(1100, 700, 512, 3, true, false);
+  }
+
+  @Test
+  public void dirtyRectangleModeCopiesWholeFrames() {
+
+    compare(640, 480, 64, 2, false, true);
+  }
+}
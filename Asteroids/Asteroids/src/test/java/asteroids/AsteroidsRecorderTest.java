@@ -0,0 +1,240 @@
+/************************************************************************************************
+
+AsteroidsRecorderTest.java
+
+  Checks that a game recorded by AsteroidsRecorder plays back through AsteroidsReplay tick for
+  tick: the replayed world must match the recorded one (by AsteroidsBenchmark's checksum) after
+  every tick, however the recording was flushed, and a recording cut short must play back as
+  far as its last complete run.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AsteroidsRecorderTest {
+
+  // Constants
+
+  static final int TICKS = 20000;
+
+  // Fields:
+
+  int[]  inputs = new int[TICKS];      // Input given on each tick, and the world's checksum
+  long[] sums = new long[TICKS + 1];   // before the first tick and after each one.
+
+  // Methods:
+
+  static AsteroidsWorld newWorld() {
+
+    return new AsteroidsWorld(640, 480, AsteroidsWorld.MAX_SHOTS, AsteroidsWorld.MAX_ROCKS,
+                              AsteroidsWorld.MAX_SCRAP, 7);
+  }
+
+  byte[] record(int flushEvery) throws IOException {
+
+    ByteArrayOutputStream bytes;
+    AsteroidsRecorder recorder;
+    AsteroidsWorld world;
+    Random random;
+    int i, input, run;
+
+    // Play a game with keys held for random lengths of time, some short and some long enough
+    // to need several bytes to count, noting the input and the state after every tick. The
+    // recording is flushed every so often if asked, which cuts runs in two.
+
+    bytes = new ByteArrayOutputStream();
+    world = newWorld();
+    recorder = new AsteroidsRecorder(bytes, world);
+    random = new Random(11);
+    sums[0] = AsteroidsBenchmark.checksum(world);
+    input = run = 0;
+    for (i = 0; i < TICKS; i++) {
+      if (run-- <= 0) {
+        input = random.nextInt(1 << 6);
+        run = random.nextInt(8) == 0 ? random.nextInt(400) : random.nextInt(8);
+      }
+      if (!world.playing)
+        input |= AsteroidsWorld.START;
+      inputs[i] = input;
+      recorder.record(input);
+      world.step(input);
+      sums[i + 1] = AsteroidsBenchmark.checksum(world);
+      if (flushEvery > 0 && i % flushEvery == flushEvery - 1)
+        recorder.flush();
+    }
+    recorder.close();
+    assertEquals(TICKS, recorder.ticks);
+    assertEquals(bytes.size(), recorder.bytes);
+    return bytes.toByteArray();
+  }
+
+  void checkReplay(byte[] recording, long ticks) throws IOException {
+
+    AsteroidsReplay replay;
+    AsteroidsWorld world;
+    int i, input;
+
+    // Step a world with the recording's input one tick at a time, checking it against the
+    // game as it was played.
+
+    replay = new AsteroidsReplay(ByteBuffer.wrap(recording));
+    world = replay.newWorld();
+    assertEquals(sums[0], AsteroidsBenchmark.checksum(world));
+    for (i = 0; (input = replay.next()) >= 0; i++) {
+      assertTrue("more ticks than recorded", i < ticks);
+      assertEquals("input at tick " + i, inputs[i], input);
+      world.step(input);
+      assertEquals("state after tick " + i, sums[i + 1], AsteroidsBenchmark.checksum(world));
+    }
+    assertEquals(ticks, i);
+  }
+
+  @Test
+  public void replayMatchesEveryTick() throws IOException {
+
+    checkReplay(record(0), TICKS);
+  }
+
+  @Test
+  public void flushingChangesNothing() throws IOException {
+
+    checkReplay(record(97), TICKS);
+  }
+
+  @Test
+  public void playMatchesStepping() throws IOException {
+
+    AsteroidsReplay replay;
+    AsteroidsWorld world;
+    long n, played;
+
+    // Playing the recording in uneven slices ends in the same place as stepping it.
+
+    replay = new AsteroidsReplay(ByteBuffer.wrap(record(0)));
+    world = replay.newWorld();
+    played = 0;
+    for (n = 1; (n = replay.play(world, n)) > 0; n = 3 * n + 1) {
+      played += n;
+      assertEquals("state after tick " + played, sums[(int) played], AsteroidsBenchmark.checksum(world));
+    }
+    assertEquals(TICKS, played);
+  }
+
+  @Test
+  public void recordingCutShortPlaysToLastRun() throws IOException {
+
+    AsteroidsReplay replay;
+    byte[] recording;
+    int cut;
+    long ticks;
+
+    // A recording cut off anywhere plays back the runs it still holds in full, and nothing of
+    // the run it cut through.
+
+    recording = record(0);
+    for (cut = AsteroidsRecorder.HEADER; cut < recording.length; cut += 1 + cut / 7) {
+      replay = new AsteroidsReplay(ByteBuffer.wrap(Arrays.copyOf(recording, cut)));
+      ticks = 0;
+      while (replay.next() >= 0)
+        ticks++;
+      checkReplay(Arrays.copyOf(recording, cut), ticks);
+    }
+  }
+
+  @Test
+  public void emptyAndOverlongRunsEndCleanly() throws IOException {
+
+    AsteroidsReplay replay;
+    byte[] recording;
+    int i, k;
+
+    // A long stretch of empty runs is skipped over, and a run whose count goes on past 64 bits
+    // ends the recording.
+
+    recording = Arrays.copyOf(record(0), AsteroidsRecorder.HEADER + 200000 + 2 + 12);
+    for (i = AsteroidsRecorder.HEADER, k = 0; k < 100000; k++) {
+      recording[i++] = (byte) AsteroidsWorld.FIRE;
+      recording[i++] = 0;
+    }
+    recording[i++] = (byte) AsteroidsWorld.LEFT;
+    recording[i++] = 3;
+    recording[i++] = (byte) AsteroidsWorld.RIGHT;
+    for (k = 0; k < 11; k++)
+      recording[i++] = (byte) 0xff;
+    replay = new AsteroidsReplay(ByteBuffer.wrap(recording));
+    for (k = 0; k < 3; k++)
+      assertEquals(AsteroidsWorld.LEFT, replay.next());
+    assertEquals(-1, replay.next());
+    assertEquals(-1, replay.next());
+  }
+
+  static int shootSaucer(byte[] recording, int version) throws IOException {
+
+    AsteroidsReplay replay;
+    AsteroidsWorld world;
+    int i, k;
+
+    // Replay the header as the given version, then hold the saucer still with two photons
+    // sitting on it and let it be hit. Returns the number of kills counted.
+
+    recording[4] = (byte) (version >> 8);
+    recording[5] = (byte) version;
+    replay = new AsteroidsReplay(ByteBuffer.wrap(recording));
+    world = replay.newWorld();
+    world.initGame();
+    world.initUfo();
+    world.ufo.setX(0);
+    world.ufo.setY(0);
+    world.ufo.setDeltaX(0);
+    world.ufo.setDeltaY(0);
+    world.ufo.render();
+    world.ufoCounter = 100;
+    for (k = 0; k < 2; k++) {
+      i = world.photonPool.spawn();
+      world.photons[i].setX(0);
+      world.photons[i].setY(0);
+      world.photons[i].setDeltaX(0);
+      world.photons[i].setDeltaY(0);
+      world.photonCounter[i] = 10;
+      world.photons[i].render();
+      world.photons[i].startSweep();
+    }
+    world.photonsBinned = false;
+    world.updateUfo();
+    assertFalse(world.ufo.isActive());
+    assertEquals(world.ufoKills * world.rules.ufoPoints, world.score);
+    return world.ufoKills;
+  }
+
+  @Test
+  public void olderVersionsScoreEveryHit() throws IOException {
+
+    byte[] recording;
+
+    // Before version 3 both photons scored the saucer; since then only the first does.
+
+    recording = record(0);
+    assertEquals(2, shootSaucer(recording, 1));
+    assertEquals(2, shootSaucer(recording, 2));
+    assertEquals(1, shootSaucer(recording, AsteroidsRecorder.VERSION));
+  }
+
+  @Test(expected = IOException.class)
+  public void newerVersionIsRefused() throws IOException {
+
+    byte[] recording;
+
+    recording = record(0);
+    recording[5] = (byte) (AsteroidsRecorder.VERSION + 1);
+    new AsteroidsReplay(ByteBuffer.wrap(recording));
+  }
+}
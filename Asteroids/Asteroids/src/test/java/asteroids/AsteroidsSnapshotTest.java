@@ -0,0 +1,214 @@
+/************************************************************************************************
+
+AsteroidsSnapshotTest.java
+
+  Checks that snapshots and the timeline built on them put a world back exactly: a restored
+  world, or one sought to a tick, must hold the same state as the original did at that tick
+  and play on from it the same way. States are compared whole, by saving each into a snapshot
+  of its own and comparing the words. The pools are kept small so that they fill up and hand
+  back their oldest sprites, which must also happen in the same order after a restore.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AsteroidsSnapshotTest {
+
+  // Constants
+
+  static final int TICKS = 3000;
+
+  // Fields:
+
+  int[]    inputs = new int[TICKS];     // Input given on each tick, and the world's state
+  long[][] states = new long[TICKS + 1][];    // before the first tick and after each one.
+
+  // Methods:
+
+  static AsteroidsWorld newWorld() {
+
+    return new AsteroidsWorld(640, 480, 4, 48, 12, 3);
+  }
+
+  static long[] state(AsteroidsWorld world) {
+
+    AsteroidsSnapshot s;
+
+    s = new AsteroidsSnapshot(world);
+    s.save(world);
+    return Arrays.copyOf(s.data, s.size);
+  }
+
+  static int input(AsteroidsWorld world, int tick) {
+
+    return AsteroidsBenchmark.pilot(tick) | (world.playing ? 0 : AsteroidsWorld.START);
+  }
+
+  @Before
+  public void play() {
+
+    AsteroidsWorld world;
+    int i;
+
+    world = newWorld();
+    states[0] = state(world);
+    for (i = 0; i < TICKS; i++) {
+      inputs[i] = input(world, i);
+      world.step(inputs[i]);
+      states[i + 1] = state(world);
+    }
+  }
+
+  void playOn(AsteroidsWorld world, int ticks) {
+
+    int i;
+
+    // Step the world on from where it is, checking it against the original after each tick.
+
+    for (i = 0; i < ticks && world.ticks < TICKS; i++) {
+      world.step(inputs[(int) world.ticks]);
+      assertArrayEquals("state after tick " + world.ticks, states[(int) world.ticks], state(world));
+    }
+  }
+
+  @Test
+  public void restoreMatchesAndPlaysOn() {
+
+    AsteroidsWorld world, other;
+    AsteroidsSnapshot snapshot;
+    int i, tick;
+
+    // Snapshots taken along the way, restored into the same world later on and into a new
+    // one, give back the state at that tick and play on the same.
+
+    world = newWorld();
+    other = newWorld();
+    snapshot = new AsteroidsSnapshot(world);
+    for (tick = 0; tick < TICKS; tick += 250) {
+      while (world.ticks < tick)
+        world.step(inputs[(int) world.ticks]);
+      snapshot.save(world);
+      assertEquals(tick, snapshot.tick);
+      for (i = 0; i < 100; i++)
+        world.step(inputs[(int) world.ticks]);
+      snapshot.restore(world);
+      assertArrayEquals("restored at tick " + tick, states[tick], state(world));
+      snapshot.restore(other);
+      assertArrayEquals("restored into another world at tick " + tick, states[tick], state(other));
+      playOn(other, 200);
+    }
+  }
+
+  @Test
+  public void writtenSnapshotReadsBack() throws IOException {
+
+    AsteroidsWorld world, other;
+    AsteroidsSnapshot snapshot, copy;
+    ByteArrayOutputStream bytes;
+    DataOutputStream out;
+
+    world = newWorld();
+    while (world.ticks < TICKS / 2)
+      world.step(inputs[(int) world.ticks]);
+    snapshot = new AsteroidsSnapshot(world);
+    snapshot.save(world);
+    bytes = new ByteArrayOutputStream();
+    out = new DataOutputStream(bytes);
+    snapshot.write(out);
+    out.flush();
+
+    other = newWorld();
+    copy = new AsteroidsSnapshot(other);
+    copy.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+    assertEquals(snapshot.tick, copy.tick);
+    copy.restore(other);
+    assertArrayEquals(states[TICKS / 2], state(other));
+    playOn(other, 500);
+  }
+
+  @Test
+  public void seekMatchesEveryTickWithinReach() {
+
+    AsteroidsWorld world;
+    AsteroidsTimeline timeline;
+    Random random;
+    int i, tick;
+
+    // Seek back and forth at random over the whole game, then walk back through every tick.
+
+    world = newWorld();
+    timeline = new AsteroidsTimeline(world, 50, TICKS / 50 + 1);
+    for (i = 0; i < TICKS; i++)
+      timeline.step(inputs[i]);
+    assertEquals(0, timeline.oldest());
+    assertEquals(TICKS, timeline.latest());
+    random = new Random(5);
+    for (i = 0; i < 300; i++) {
+      tick = random.nextInt(TICKS + 1);
+      assertTrue(timeline.seek(tick));
+      assertEquals(tick, world.ticks);
+      assertArrayEquals("seek to tick " + tick, states[tick], state(world));
+    }
+    for (tick = TICKS; tick >= 0; tick--) {
+      assertTrue(timeline.seek(tick));
+      assertArrayEquals("seek to tick " + tick, states[tick], state(world));
+    }
+  }
+
+  @Test
+  public void steppingAfterSeekStartsANewFuture() {
+
+    AsteroidsWorld world;
+    AsteroidsTimeline timeline;
+    int i;
+
+    // Going back and stepping with other input forgets the old future; stepping with the
+    // original input from there plays it out again.
+
+    world = newWorld();
+    timeline = new AsteroidsTimeline(world, 50, 20);
+    for (i = 0; i < 1000; i++)
+      timeline.step(inputs[i]);
+    assertTrue(timeline.seek(777));
+    timeline.step(AsteroidsWorld.FIRE | AsteroidsWorld.RIGHT);
+    assertEquals(778, timeline.latest());
+    assertFalse(timeline.seek(900));
+
+    assertTrue(timeline.seek(777));
+    for (i = 777; i < 1000; i++) {
+      timeline.step(inputs[i]);
+      assertArrayEquals("state after tick " + (i + 1), states[i + 1], state(world));
+    }
+    assertEquals(1000, timeline.latest());
+  }
+
+  @Test
+  public void oldTicksFallOutOfReach() {
+
+    AsteroidsWorld world;
+    AsteroidsTimeline timeline;
+    int i;
+
+    // A ring of 4 keyframes 50 ticks apart reaches back to the oldest one it still holds. The
+    // last was taken at the start of tick 950, so that is the one at 800.
+
+    world = newWorld();
+    timeline = new AsteroidsTimeline(world, 50, 4);
+    for (i = 0; i < 1000; i++)
+      timeline.step(inputs[i]);
+    assertEquals(800, timeline.oldest());
+    assertFalse(timeline.seek(799));
+    assertEquals(1000, world.ticks);
+    assertTrue(timeline.seek(800));
+    assertArrayEquals(states[800], state(world));
+  }
+}
@@ -0,0 +1,50 @@
+/************************************************************************************************
+
+BenchmarkMain.java
+
+  Usage:
+
+  java -jar benchmarks/target/benchmarks.jar [JMH options] [benchmark regexp]
+
+  Runs the JMH benchmarks with the GC profiler switched on, so every result comes with the bytes
+  allocated per operation alongside the time, and in a headless JVM so the rendering benchmarks
+  run without a display. Any of the usual JMH options may be given; -h lists them and -l lists
+  the benchmarks.
+
+************************************************************************************************/
+
+package asteroids;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.*;
+
+public class BenchmarkMain {
+
+  public static void main(String[] args) throws Exception {
+
+    CommandLineOptions cmd;
+    ChainedOptionsBuilder options;
+
+    // Leave help and the various listings to JMH itself.
+
+    cmd = new CommandLineOptions(args);
+    if (cmd.shouldHelp() || cmd.shouldList() || cmd.shouldListWithParams() || cmd.shouldListProfilers() || cmd.shouldListResultFormats()) {
+      org.openjdk.jmh.Main.main(args);
+      return;
+    }
+
+    options = new OptionsBuilder().parent(cmd).jvmArgsAppend("-Djava.awt.headless=true");
+    if (!hasProfiler(cmd, "gc"))
+      options.addProfiler(GCProfiler.class);
+    new Runner(options.build()).run();
+  }
+
+  static boolean hasProfiler(Options options, String name) {
+
+    for (ProfilerConfig p : options.getProfilers())
+      if (p.getKlass().equals(name) || p.getKlass().equals(GCProfiler.class.getName()))
+        return true;
+    return false;
+  }
+}
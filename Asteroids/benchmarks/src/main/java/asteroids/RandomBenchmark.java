@@ -0,0 +1,58 @@
+/************************************************************************************************
+
+RandomBenchmark.java
+
+  Compares Math.random(), which every thread shares, with a generator owned by each thread the
+  way each AsteroidsWorld owns one, and times a full game tick on a world of each thread's own.
+  Run with several threads (-t 4, say, on a machine with the cores to match) to see whether the
+  cost per call grows as threads are added; a shared generator's does, a private one's should
+  not.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomBenchmark {
+
+  AsteroidsRandom random;
+  AsteroidsWorld  world;
+  long            tick;
+
+  @Setup
+  public void setup() {
+
+    random = new AsteroidsRandom(1);
+    world = new AsteroidsWorld(640, 480, AsteroidsWorld.MAX_SHOTS, AsteroidsWorld.MAX_ROCKS, AsteroidsWorld.MAX_SCRAP, 1);
+    tick = 0;
+  }
+
+  @Benchmark
+  public double mathRandom() {
+
+    return Math.random();
+  }
+
+  @Benchmark
+  public double worldRandom() {
+
+    return random.nextDouble();
+  }
+
+  @Benchmark
+  public int step() {
+
+    if (!world.playing)
+      world.initGame();
+    world.step(AsteroidsBenchmark.pilot(tick++));
+    return world.score;
+  }
+}
@@ -0,0 +1,87 @@
+/************************************************************************************************
+
+RasterBenchmark.java
+
+  Times a frame drawn with AsteroidsRaster, the stars and sprites rasterized in software on the
+  given number of threads straight into the pixels of a BufferedImage, against the same frame
+  drawn through Java 2D. The scene is RenderBenchmark's: the rocks scattered over the screen,
+  half of them just blown up, and the frame is 4:3 at the given width.
+
+  paint() draws the frame through Java 2D (whatever the thread count) and raster() through the
+  raster. Both draw the status text over it through Java 2D.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RasterBenchmark {
+
+  @Param({"512", "4096"})
+  public int rocks;
+
+  @Param({"true", "false"})
+  public boolean detail;
+
+  @Param({"1920", "3840"})
+  public int width;
+
+  @Param({"1", "2", "4", "8"})
+  public int threads;
+
+  int height;
+
+  AsteroidsWorld    world;
+  AsteroidsRenderer renderer;
+  AsteroidsRenderer rasterRenderer;
+  BufferedImage     image;
+  Graphics          graphics;
+
+  @Setup
+  public void setup() {
+
+    height = width * 3 / 4;
+    world = RenderBenchmark.scene(width, height, rocks, detail);
+    image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    graphics = image.getGraphics();
+    renderer = new AsteroidsRenderer(world);
+    renderer.loaded = true;
+    rasterRenderer = new AsteroidsRenderer(world);
+    rasterRenderer.loaded = true;
+    rasterRenderer.raster = new AsteroidsRaster(threads);
+    rasterRenderer.raster.setTarget(image);
+    renderer.paint(graphics, width, height);
+    rasterRenderer.paint(graphics, width, height);
+  }
+
+  @TearDown
+  public void tearDown() {
+
+    graphics.dispose();
+    rasterRenderer.raster.shutdown();
+  }
+
+  @Benchmark
+  public BufferedImage paint() {
+
+    renderer.paint(graphics, width, height);
+    return image;
+  }
+
+  @Benchmark
+  public BufferedImage raster() {
+
+    rasterRenderer.paint(graphics, width, height);
+    return image;
+  }
+}
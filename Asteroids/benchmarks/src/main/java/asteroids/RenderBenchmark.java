@@ -0,0 +1,148 @@
+/************************************************************************************************
+
+RenderBenchmark.java
+
+  Times a full frame of AsteroidsRenderer.paint(), the drawing the applet does in
+  update(Graphics), into an offscreen BufferedImage. The rock count sets how many asteroids are
+  on screen, scattered over the whole of it, and half of them have just been blown up, so
+  their debris is fading out over them.
+  detail switches the stars and filled shapes on and off, and width sets the size of the frame
+  (with a 4:3 height), from the applet's usual size up to a 4K screen.
+
+  status() times just the status text drawn over the frame (the score, ships left and high
+  score, and the title messages, since no game is under way), and statusScoring() the same
+  with the score going up on every frame.
+
+  frame() and frameDirty() run the game on a tick and draw a frame of it, which is then copied
+  to another image standing in for the screen: the whole frame, or in dirty rectangle mode just
+  the parts that changed (falling back to the whole frame when too much did).
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.awt.Graphics;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RenderBenchmark {
+
+  @Param({"8", "64", "512", "4096"})
+  public int rocks;
+
+  @Param({"true", "false"})
+  public boolean detail;
+
+  @Param({"640", "3840"})
+  public int width;
+
+  int height;
+
+  AsteroidsWorld    world;
+  AsteroidsRenderer renderer;
+  AsteroidsRenderer dirtyRenderer;
+  BufferedImage     image;
+  Graphics          graphics;
+  BufferedImage     screen;
+  Graphics          screenGraphics;
+
+  @Setup
+  public void setup() {
+
+    height = width * 3 / 4;
+    world = scene(width, height, rocks, detail);
+    renderer = new AsteroidsRenderer(world);
+    renderer.loaded = true;
+    image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    graphics = image.getGraphics();
+    renderer.paint(graphics, width, height);
+    dirtyRenderer = new AsteroidsRenderer(world);
+    dirtyRenderer.loaded = true;
+    dirtyRenderer.dirty = new AsteroidsDirty();
+    screen = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    screenGraphics = screen.getGraphics();
+  }
+
+  static AsteroidsWorld scene(int width, int height, int rocks, boolean detail) {
+
+    AsteroidsWorld world;
+    AsteroidsSprite s;
+    Random random;
+    int k;
+
+    // Spread the rocks over the screen rather than leaving them lined up along the edges, where
+    // only a few would be in a game under way.
+
+    world = new AsteroidsWorld(width, height, AsteroidsWorld.MAX_SHOTS, rocks, 6 * rocks);
+    world.initAsteroids();
+    world.detail = detail;
+    random = new Random(1);
+    for (k = 0; k < world.asteroidPool.count; k++) {
+      s = world.asteroids[world.asteroidPool.live[k]];
+      s.setX(random.nextDouble() * width - width / 2);
+      s.setY(random.nextDouble() * height - height / 2);
+      s.setAngle(random.nextDouble() * 2 * Math.PI);
+      s.render();
+    }
+    for (k = 0; k < world.asteroidPool.count; k += 2)
+      world.explode(world.asteroids[world.asteroidPool.live[k]]);
+    world.updateExplosions();
+    return world;
+  }
+
+  @TearDown
+  public void tearDown() {
+
+    graphics.dispose();
+    screenGraphics.dispose();
+  }
+
+  @Benchmark
+  public BufferedImage paint() {
+
+    renderer.paint(graphics, width, height);
+    return image;
+  }
+
+  @Benchmark
+  public BufferedImage status() {
+
+    renderer.drawStatus(graphics, width, height);
+    return image;
+  }
+
+  @Benchmark
+  public BufferedImage statusScoring() {
+
+    world.score += 10;
+    world.highScore = world.score;
+    renderer.drawStatus(graphics, width, height);
+    return image;
+  }
+
+  @Benchmark
+  public BufferedImage frame() {
+
+    world.step(0);
+    renderer.paint(graphics, width, height);
+    screenGraphics.drawImage(image, 0, 0, null);
+    return screen;
+  }
+
+  @Benchmark
+  public BufferedImage frameDirty() {
+
+    world.step(0);
+    dirtyRenderer.paint(graphics, width, height);
+    dirtyRenderer.dirty.copy(image, screenGraphics, null);
+    return screen;
+  }
+}
@@ -0,0 +1,75 @@
+/************************************************************************************************
+
+SnapshotBenchmark.java
+
+  Times taking and restoring a snapshot of a world in the middle of a game, and seeking to a
+  random tick of an hour long session (72,000 ticks) kept in an AsteroidsTimeline. The rock
+  count sets the size of the asteroid pool, the other pools are sized to match.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnapshotBenchmark {
+
+  static final int SESSION = 72000;    // Ticks in an hour of play.
+
+  @Param({"8", "64", "512"})
+  public int rocks;
+
+  AsteroidsWorld    world;
+  AsteroidsSnapshot snapshot;
+  AsteroidsTimeline timeline;
+  Random            random;
+
+  @Setup
+  public void setup() {
+
+    int i, input;
+
+    // Play an hour with the headless benchmark's pilot, keeping keyframes for all of it.
+
+    world = new AsteroidsWorld(640, 480, rocks, rocks, rocks * AsteroidsWorld.MAX_ROCK_SIDES, 1);
+    timeline = new AsteroidsTimeline(world, AsteroidsTimeline.INTERVAL, SESSION / AsteroidsTimeline.INTERVAL + 1);
+    for (i = 0; i < SESSION; i++) {
+      input = AsteroidsBenchmark.pilot(i);
+      if (!world.playing)
+        input |= AsteroidsWorld.START;
+      timeline.step(input);
+    }
+    snapshot = new AsteroidsSnapshot(world);
+    snapshot.save(world);
+    random = new Random(1);
+  }
+
+  @Benchmark
+  public AsteroidsSnapshot save() {
+
+    snapshot.save(world);
+    return snapshot;
+  }
+
+  @Benchmark
+  public AsteroidsWorld restore() {
+
+    snapshot.restore(world);
+    return world;
+  }
+
+  @Benchmark
+  public AsteroidsWorld seek() {
+
+    timeline.seek(random.nextInt(SESSION + 1));
+    return world;
+  }
+}
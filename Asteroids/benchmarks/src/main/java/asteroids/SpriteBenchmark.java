@@ -0,0 +1,105 @@
+/************************************************************************************************
+
+SpriteBenchmark.java
+
+  Times the per-sprite hot paths, advance(), render() and isColliding(), over a field of
+  asteroids scattered at random across the playfield. Each operation covers every asteroid in
+  the field, so the score divided by the rock count gives the cost per sprite. renderShip()
+  renders the ship alone, turning it a step each time.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpriteBenchmark {
+
+  static final int WIDTH  = 640;    // Playfield size used for the runs.
+  static final int HEIGHT = 480;
+
+  @Param({"8", "64", "512", "4096"})
+  public int rocks;
+
+  AsteroidsWorld    world;
+  AsteroidsSprite[] field;
+
+  @Setup
+  public void setup() {
+
+    Random random;
+    int k;
+
+    // Fill the asteroid pool and spread the rocks over the whole playfield rather than leaving
+    // them lined up along the edges, so the collision tests see a realistic mix of near misses.
+
+    world = new AsteroidsWorld(WIDTH, HEIGHT, AsteroidsWorld.MAX_SHOTS, rocks, AsteroidsWorld.MAX_SCRAP);
+    world.initAsteroids();
+    random = new Random(1);
+    field = new AsteroidsSprite[world.asteroidPool.count];
+    for (k = 0; k < field.length; k++) {
+      field[k] = world.asteroids[world.asteroidPool.live[k]];
+      field[k].setX(random.nextDouble() * WIDTH - WIDTH / 2);
+      field[k].setY(random.nextDouble() * HEIGHT - HEIGHT / 2);
+      field[k].setAngle(random.nextDouble() * 2 * Math.PI);
+      field[k].render();
+    }
+  }
+
+  @Benchmark
+  public AsteroidsSprite[] advance() {
+
+    int k;
+
+    for (k = 0; k < field.length; k++)
+      field[k].advance();
+    return field;
+  }
+
+  @Benchmark
+  public AsteroidsSprite[] render() {
+
+    int k;
+
+    for (k = 0; k < field.length; k++)
+      field[k].render();
+    return field;
+  }
+
+  @Benchmark
+  public AsteroidsSprite renderShip() {
+
+    AsteroidsSprite ship;
+
+    // Turn the ship a step and render it, as every tick does while a turn key is held.
+
+    ship = world.ship;
+    ship.setAngle(ship.getAngle() + Math.PI / 16.0);
+    if (ship.getAngle() > 2 * Math.PI)
+      ship.setAngle(ship.getAngle() - 2 * Math.PI);
+    ship.render();
+    return ship;
+  }
+
+  @Benchmark
+  public int isColliding() {
+
+    int k, hits;
+
+    // Test each rock against its neighbour in the field.
+
+    hits = 0;
+    for (k = 0; k < field.length; k++)
+      if (field[k].isColliding(field[(k + 1) % field.length]))
+        hits++;
+    return hits;
+  }
+}
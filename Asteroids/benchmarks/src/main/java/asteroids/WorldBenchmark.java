@@ -0,0 +1,98 @@
+/************************************************************************************************
+
+WorldBenchmark.java
+
+  Times the AsteroidsWorld operations that handle many sprites at once: filling the asteroid
+  pool with a new wave, breaking every rock into debris, one updateAsteroids() pass and a full
+  game tick. The rock count sets the size of the asteroid pool, and the other pools are sized to
+  match so nothing has to be recycled.
+
+  threads shares out the sprite updates among that many threads with an AsteroidsParallel, or
+  none at 0 (the default). To see how a tick scales with cores, run with more rocks and several
+  thread counts, e.g. -p rocks=16384 -p threads=0,1,2,4,8.
+
+************************************************************************************************/
+
+package asteroids;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WorldBenchmark {
+
+  static final int WIDTH  = 640;    // Playfield size used for the runs.
+  static final int HEIGHT = 480;
+
+  @Param({"8", "64", "512", "4096"})
+  public int rocks;
+
+  @Param({"0"})
+  public int threads;
+
+  AsteroidsWorld world;
+  long           tick;
+
+  @Setup
+  public void setup() {
+
+    world = new AsteroidsWorld(WIDTH, HEIGHT, rocks, rocks, rocks * AsteroidsWorld.MAX_ROCK_SIDES);
+    world.initAsteroids();
+    if (threads > 0)
+      world.parallel = new AsteroidsParallel(threads);
+    tick = 0;
+  }
+
+  @TearDown
+  public void tearDown() {
+
+    if (world.parallel != null)
+      world.parallel.shutdown();
+  }
+
+  @Benchmark
+  public int initAsteroids() {
+
+    world.initAsteroids();
+    return world.asteroidsLeft;
+  }
+
+  @Benchmark
+  public int explode() {
+
+    int k;
+
+    // Break up every rock, then clear the debris away again for the next operation.
+
+    for (k = 0; k < world.asteroidPool.count; k++)
+      world.explode(world.asteroids[world.asteroidPool.live[k]]);
+    k = world.explosionPool.count;
+    world.initExplosions();
+    return k;
+  }
+
+  @Benchmark
+  public int updateAsteroids() {
+
+    // Move, render and test every rock. No shots are in flight, so the field never thins out.
+
+    world.updateAsteroids();
+    return world.asteroidsLeft;
+  }
+
+  @Benchmark
+  public int step() {
+
+    // A full tick of a game flown by the headless benchmark's pilot, restarting when it ends.
+
+    if (!world.playing)
+      world.initGame();
+    world.step(AsteroidsBenchmark.pilot(tick++));
+    return world.score;
+  }
+}